@@ -0,0 +1,78 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import game.GameEngine;
+import maze.Direction;
+import solver.MazeSolver;
+
+/**
+ * Measures the rule processing of {@link GameEngine#move}: a practice player
+ * walks the solution path of a large maze forth and back, never entering the
+ * goal, so the game never ends. Reports the time per move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GameEngineBenchmark {
+    private static final int MOVES = 1 << 12;
+
+    private GameEngine engine;
+    private Direction[] walk;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = new GameEngine(42L);
+        engine.startPractice(GameEngine.LARGE);
+        engine.setMovable(true);
+        MazeSolver solver = new MazeSolver(engine.getMaze());
+        int length = solver.findPath(engine.getPlayerX(), engine.getPlayerY(),
+                engine.getGoalX(), engine.getGoalY());
+        int[] path = solver.getPath();
+
+        int steps = Math.min(length - 2, MOVES / 2);
+        walk = new Direction[MOVES];
+        for (int i = 0; i < steps; ++i) {
+            walk[i] = step(solver, path[i], path[i + 1]);
+            walk[2 * steps - 1 - i] = walk[i].getReverse();
+        }
+        for (int i = 2 * steps; i < MOVES; ++i) {
+            walk[i] = walk[i % (2 * steps)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public int walk() {
+        int moved = 0;
+        for (Direction d : walk) {
+            moved += engine.move(d);
+        }
+        return moved;
+    }
+
+    private static Direction step(MazeSolver solver, int from, int to) {
+        int dx = solver.x(to) - solver.x(from);
+        int dy = solver.y(to) - solver.y(from);
+        if (dx != 0) {
+            return (dx > 0) ? Direction.EAST : Direction.WEST;
+        }
+        return (dy > 0) ? Direction.SOUTH : Direction.NORTH;
+    }
+}
@@ -0,0 +1,55 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.Maze;
+import maze.MazeGenerator;
+import maze.RandomizedMaze;
+
+/**
+ * Measures maze generation. Other generators and random number generators
+ * are selected with, for example,
+ * {@code -p generator=KRUSKAL,PRIM -p random=Random,L64X128MixRandom}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GenerationBenchmark {
+    @Param({ "5", "50", "500", "5000", "10000" })
+    public int size;
+
+    @Param({ "RECURSIVE_BACKTRACKER" })
+    public String generator;
+
+    @Param({ RandomizedMaze.DEFAULT_ALGORITHM })
+    public String random;
+
+    private RandomizedMaze maze;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        maze = MazeGenerator.valueOf(generator).create(size, size, 42L, random);
+    }
+
+    @Benchmark
+    public Maze generate() {
+        maze.generate();
+        return maze;
+    }
+}
@@ -0,0 +1,118 @@
+package bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import maze.Direction;
+import maze.RecursiveBacktracker;
+
+/**
+ * Measures wall queries on a generated maze: random and sequential calls of
+ * the per-wall {@code isWall}, against the bulk read paths. The full-grid
+ * benchmarks report the time per scan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark {
+    private static final int QUERIES = 1 << 16;
+
+    @Param({ "100", "2000" })
+    public int size;
+
+    private RecursiveBacktracker maze;
+    private int[] xs;
+    private int[] ys;
+    private Direction[] ds;
+    private byte[] row;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        maze = new RecursiveBacktracker(size, size, 42L);
+        maze.generate();
+        SplittableRandom rnd = new SplittableRandom(42L);
+        Direction[] directions = Direction.values();
+        xs = new int[QUERIES];
+        ys = new int[QUERIES];
+        ds = new Direction[QUERIES];
+        for (int i = 0; i < QUERIES; ++i) {
+            xs[i] = rnd.nextInt(size);
+            ys[i] = rnd.nextInt(size);
+            ds[i] = directions[rnd.nextInt(4)];
+        }
+        row = new byte[size];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int randomIsWall() {
+        int walls = 0;
+        for (int i = 0; i < QUERIES; ++i) {
+            if (maze.isWall(xs[i], ys[i], ds[i])) {
+                ++walls;
+            }
+        }
+        return walls;
+    }
+
+    @Benchmark
+    public int sequentialIsWall() {
+        int walls = 0;
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                for (Direction d : Direction.values()) {
+                    if (maze.isWall(x, y, d)) {
+                        ++walls;
+                    }
+                }
+            }
+        }
+        return walls;
+    }
+
+    @Benchmark
+    public int sequentialGetWalls() {
+        int walls = 0;
+        for (int y = 0; y < size; ++y) {
+            for (int x = 0; x < size; ++x) {
+                walls += Integer.bitCount(maze.getWalls(x, y));
+            }
+        }
+        return walls;
+    }
+
+    @Benchmark
+    public int sequentialReadRow() {
+        int walls = 0;
+        for (int y = 0; y < size; ++y) {
+            maze.readRow(y, row, 0);
+            for (int x = 0; x < size; ++x) {
+                walls += Integer.bitCount(row[x]);
+            }
+        }
+        return walls;
+    }
+
+    @Benchmark
+    public void forEachCell(Blackhole blackhole) {
+        maze.forEachCell((x, y, walls) -> blackhole.consume(walls));
+    }
+}
@@ -0,0 +1,70 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.RecursiveBacktracker;
+import maze.TileMaze;
+
+/** Measures full scans of the tiles of a {@link TileMaze}, tile by tile and row by row. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TileMazeBenchmark {
+    @Param({ "100", "2000" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean materialized;
+
+    private TileMaze tiles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RecursiveBacktracker maze = new RecursiveBacktracker(size, size, 42L);
+        maze.generate();
+        tiles = new TileMaze(maze);
+        tiles.setMaterialized(materialized);
+    }
+
+    @Benchmark
+    public int scan() {
+        int walls = 0;
+        for (int y = 0; y < tiles.getHeight(); ++y) {
+            for (int x = 0; x < tiles.getWidth(); ++x) {
+                if (tiles.isWall(x, y)) {
+                    ++walls;
+                }
+            }
+        }
+        return walls;
+    }
+
+    @Benchmark
+    public int rows() {
+        long[] row = new long[tiles.getWordsPerRow()];
+        int walls = 0;
+        for (int y = 0; y < tiles.getHeight(); ++y) {
+            tiles.readRow(y, row, 0);
+            for (long word : row) {
+                walls += Long.bitCount(word);
+            }
+        }
+        return walls;
+    }
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maze.RecursiveBacktracker;
+import maze.TileMaze;
+
+/** Measures the text rendering of {@link maze.Maze} and {@link TileMaze}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ToStringBenchmark {
+    @Param({ "100", "1000" })
+    public int size;
+
+    private RecursiveBacktracker maze;
+    private TileMaze tiles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        maze = new RecursiveBacktracker(size, size, 42L);
+        maze.generate();
+        tiles = new TileMaze(maze);
+    }
+
+    @Benchmark
+    public String mazeToString() {
+        return maze.toString();
+    }
+
+    @Benchmark
+    public String tileMazeToString() {
+        return tiles.toString();
+    }
+}
@@ -9,78 +9,121 @@ import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.InputEvent;
-import java.awt.geom.Line2D;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
-
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import java.io.File;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.IOException;
-import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.UnsupportedAudioFileException;
-
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import audio.SoundBank;
+import controller.InputQueue;
+import game.GameClock;
+import game.GameEngine;
+import game.GameListener;
 import maze.Direction;
 import maze.Maze;
-import maze.RecursiveBacktracker;
+import maze.RandomizedMaze;
+import perf.PerfMonitor;
+import replay.Replay;
+import replay.ReplayRecorder;
+import view.GameLoop;
+import view.PerfOverlay;
+import view.TileState;
+import view.ToastQueue;
+import view.Viewport;
+import view.WallLayerCache;
 
 public class Main extends JPanel {
     private static final long serialVersionUID = 1L;
 
-    // Constants for difficulties
-    private static final int WIDTH_EASY = 5;
-    private static final int HEIGHT_EASY = 5;
-    private static final int WIDTH_MEDIUM = 7;
-    private static final int HEIGHT_MEDIUM = 7;
-    private static final int WIDTH_HARD = 9;
-    private static final int HEIGHT_HARD = 9;
     private static final int TILE_SIZE = 50;
-
-    private static final int MIN_DISTANCE_FROM_START = 3; // Minimum distance from starting point
+    private static final int MAX_VIEW_SIZE = 750; // Larger mazes are shown through a scrolling viewport
 
     private static final int INVISIBLE_WALL_DELAY = 5000; // 5 seconds delay for walls to turn invisible
 
+    private static final String HIT_WALL_SOUND = "hit-wall";
+    private static final int HIT_WALL_VOICES = 4; // Wall hits that can sound at the same time
+
+    private static final int UPDATES_PER_SECOND = 60; // Fixed game steps per second in active rendering
+    private static final int FRAME_CAP = Integer.getInteger("maze.frameCap", 120); // Frames per second, 0 for no cap
+    private static final int PERF_REFRESH_DELAY = 500; // Refresh the performance overlay every half second
+    private static final int TOAST_TICK = 100; // Check for expired toasts every 100 ms
+    private static final int INPUT_CAPACITY = 64; // Moves that can wait for the next game tick
+
     private Dimension dimension;
-    private List<Shape> shapes;
-    private Maze maze;
-    private boolean[][][] wallHits;
-    private boolean[][] visibleWalls; // Track visible walls
-    private int playerX, playerXOri, playerY, playerYOri, goalX, goalY; // Player and goal positions
-    private int heartsA, heartsB;
-    private int currentDifficulty = 1;
-    private int currentGameAttempts = 1;
-    private int round = 1;
-    private int games = 0;
-    private int playerAWins = 0, playerBWins = 0;
-    private boolean playerATurn = true; // Toggle between Player A and Player B
-    private boolean wallsInvisible = false; // Toggle invisible walls
-    private Timer invisibleTimer;
-    private boolean canMove = false;
-    private boolean practiceMode = false;
-    private boolean visibleToggled = false;
+    private WallLayerCache wallLayers; // Null when the maze is larger than the view
+    private Viewport viewport;
+    private final GameEngine engine = new GameEngine(); // The rules; this panel draws it and feeds it moves
+    private boolean gameStartPending = false; // A game started within an engine call; the window must follow
+    private final ReplayRecorder recorder = new ReplayRecorder(engine, this::saveReplay); // Fed by EngineListener
+    private Path replayDir; // Where finished games are saved as replays, null to not save them
+    private final ExecutorService replayWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Replay writer"); // Keeps file writes off the EDT and renderLock
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean wallsInvisible = false; // Toggle invisible walls; read by the game loop thread
+    private GameClock.Countdown invisibleCountdown;
+    private volatile boolean visibleToggled = false;
     private JLabel roundLabel, gameLabel, playerLabel, heartsLabel, invisibleTimerLabel, playerAWinsLabel,
             playerBWinsLabel;
     private boolean statusPanelCreated = false;
     private JPanel contentPanel;
     JLabel placeholderLabel;
-    private Clip clip;
+
+    private final GameClock clock = new GameClock(SwingUtilities::invokeLater); // Calls back on the EDT
+    private final SoundBank sounds = new SoundBank();
+
+    private final Object renderLock = new Object(); // Guards the maze state read by the game loop thread
+    private boolean activeRendering = false;
+    private Canvas canvas; // Replaces this panel while rendering actively
+    private GameLoop gameLoop;
+
+    private final PerfMonitor perfMonitor = new PerfMonitor();
+    private final PerfOverlay perfOverlay = new PerfOverlay(perfMonitor);
+    private final javax.swing.Timer perfTimer = new javax.swing.Timer(PERF_REFRESH_DELAY, e -> refreshPerfOverlay());
+    private boolean perfOverlayShown = false;
+
+    private final ToastQueue toasts = new ToastQueue(); // Messages shown over the maze instead of dialogs
+    private final javax.swing.Timer toastTimer = new javax.swing.Timer(TOAST_TICK, e -> updateToasts());
+
+    private final InputQueue inputs = new InputQueue(INPUT_CAPACITY); // Moves from key presses, played once a tick
+    private final javax.swing.Timer inputTimer = new javax.swing.Timer(1000 / UPDATES_PER_SECOND, e -> playInputs());
+    private final boolean[] keysHeld = new boolean[Direction.values().length]; // To tell key repeats apart
 
     private JFrame window;
 
     public Main(JFrame window) {
         this.window = window;
         dimension = new Dimension();
-        shapes = new ArrayList<>();
         setFocusable(true);
         addKeyListener(new MazeKeyListener());
+        engine.setListener(new EngineListener());
+        inputTimer.setInitialDelay(0); // Play the first move of a burst at once
 
         // Set JFrame properties
         window.setResizable(false);
 
+        // Decode the sounds in the background and release them with the window
+        sounds.load(HIT_WALL_SOUND, "/assets/hit-wall.wav", HIT_WALL_VOICES);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                clock.close();
+                sounds.close();
+                replayWriter.shutdown();
+                try {
+                    replayWriter.awaitTermination(1, TimeUnit.SECONDS); // Lets the last replay reach the disk
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
         // Create a panel to hold your components
         contentPanel = new JPanel();
         contentPanel.setPreferredSize(new Dimension(500, 650)); // Set preferred size
@@ -93,6 +136,21 @@ public class Main extends JPanel {
         // Create status panel with labels
         // createStatusPanel();
 
+        // Write the percentiles of the performance counters on exit if asked to
+        String perfLog = System.getProperty("maze.perfLog");
+        if (perfLog != null) {
+            perfMonitor.writeReportOnExit(Paths.get(perfLog));
+        }
+
+        // Save a replay of every finished game if asked to
+        String replays = System.getProperty("maze.replayDir");
+        if (replays != null) {
+            replayDir = Paths.get(replays);
+        }
+
+        // Menus must pop up above the heavyweight canvas of active rendering
+        JPopupMenu.setDefaultLightWeightPopupEnabled(false);
+
         // Initialize menu
         createMenu();
 
@@ -109,20 +167,13 @@ public class Main extends JPanel {
         JPanel statusPanel = new JPanel();
         statusPanel.setLayout(new GridLayout(4, 2)); // 7 rows, 2 columns
 
-        roundLabel = new JLabel("Round: " + round);
-        gameLabel = new JLabel("Game: " + (games + 1));
-        playerLabel = new JLabel("Player: " + (playerATurn ? "A" : "B"));
-        heartsLabel = new JLabel("Hearts: " + (playerATurn ? heartsA : heartsB));
-        playerAWinsLabel = new JLabel("A Wins: " + playerAWins);
-        playerBWinsLabel = new JLabel("B Wins: " + playerBWins);
-        invisibleTimerLabel = new JLabel();
-
-        try {
-            int timerValue = Integer.parseInt(String.valueOf(invisibleTimer));
-            invisibleTimerLabel.setText("Invisible in: " + timerValue + " sec");
-        } catch (NumberFormatException e) {
-            invisibleTimerLabel.setText("Invisible in: 0 sec");
-        }
+        roundLabel = new JLabel("Round: " + engine.getRound());
+        gameLabel = new JLabel("Game: " + (engine.getGames() + 1));
+        playerLabel = new JLabel("Player: " + (engine.isPlayerATurn() ? "A" : "B"));
+        heartsLabel = new JLabel("Hearts: " + engine.getHearts());
+        playerAWinsLabel = new JLabel("A Wins: " + engine.getPlayerAWins());
+        playerBWinsLabel = new JLabel("B Wins: " + engine.getPlayerBWins());
+        invisibleTimerLabel = new JLabel("Invisible in: " + getInvisibleSeconds() + " sec");
 
         // Add custom panels with text and ovals
         JPanel playerPanel = createLabelWithOval("Player: ", Color.BLUE, TILE_SIZE / 3);
@@ -199,21 +250,38 @@ public class Main extends JPanel {
         hardGameItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, InputEvent.CTRL_DOWN_MASK));
         hardGameItem.addActionListener(e -> startHardGame());
 
+        JMenuItem largeGameItem = new JMenuItem("Large Game (zoom with + and -)");
+        largeGameItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, InputEvent.CTRL_DOWN_MASK));
+        largeGameItem.addActionListener(e -> startLargeGame());
+
         // Add difficulty options to the "Practice Game" menu
         practiceGameMenu.add(easyGameItem);
         practiceGameMenu.add(mediumGameItem);
         practiceGameMenu.add(hardGameItem);
+        practiceGameMenu.add(largeGameItem);
 
         // "Invisible/Visible" Toggle Button
         JCheckBoxMenuItem toggleVisibilityItem = new JCheckBoxMenuItem("Toggle Invisible/Visible");
         toggleVisibilityItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_T, InputEvent.CTRL_DOWN_MASK));
         toggleVisibilityItem.addActionListener(e -> toggleVisibility());
 
+        // "Active Rendering" Toggle Button
+        JCheckBoxMenuItem activeRenderingItem = new JCheckBoxMenuItem("Active Rendering");
+        activeRenderingItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_R, InputEvent.CTRL_DOWN_MASK));
+        activeRenderingItem.addActionListener(e -> toggleActiveRendering());
+
+        // "Performance Overlay" Toggle Button
+        JCheckBoxMenuItem perfOverlayItem = new JCheckBoxMenuItem("Performance Overlay");
+        perfOverlayItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_P, InputEvent.CTRL_DOWN_MASK));
+        perfOverlayItem.addActionListener(e -> togglePerfOverlay());
+
         // Add all items to the main 'Game' menu
         gameMenu.add(start1v1GameItem);
         gameMenu.add(practiceGameMenu);
         gameMenu.addSeparator(); // Add a separator line
         gameMenu.add(toggleVisibilityItem);
+        gameMenu.add(activeRenderingItem);
+        gameMenu.add(perfOverlayItem);
 
         // Add 'Game' menu to the menu bar
         menuBar.add(gameMenu);
@@ -223,31 +291,39 @@ public class Main extends JPanel {
     }
 
     private void start1v1Game() {
-        practiceMode = false;
         System.out.println("1v1 Game started!");
-        currentDifficulty = 1;
-        startGame(getDifficulty(currentDifficulty)[0], getDifficulty(currentDifficulty)[1]);
+        runEngine(engine::start1v1);
     }
 
     private void startEasyGame() {
-        practiceMode = true;
-        currentDifficulty = 1; // Easy
         System.out.println("Easy Game selected!");
-        startGame(getDifficulty(currentDifficulty)[0], getDifficulty(currentDifficulty)[1]);
+        runEngine(() -> engine.startPractice(GameEngine.EASY));
     }
 
     private void startMediumGame() {
-        practiceMode = true;
-        currentDifficulty = 2; // Medium
         System.out.println("Medium Game selected!");
-        startGame(getDifficulty(currentDifficulty)[0], getDifficulty(currentDifficulty)[1]);
+        runEngine(() -> engine.startPractice(GameEngine.MEDIUM));
     }
 
     private void startHardGame() {
-        practiceMode = true;
-        currentDifficulty = 3; // Hard
         System.out.println("Hard Game selected!");
-        startGame(getDifficulty(currentDifficulty)[0], getDifficulty(currentDifficulty)[1]);
+        runEngine(() -> engine.startPractice(GameEngine.HARD));
+    }
+
+    private void startLargeGame() {
+        System.out.println("Large Game selected!");
+        runEngine(() -> engine.startPractice(GameEngine.LARGE)); // Shown through a viewport
+    }
+
+    // Runs an engine command with the render lock held, then the Swing work it left behind
+    private void runEngine(Runnable command) {
+        synchronized (renderLock) {
+            command.run();
+        }
+        if (gameStartPending) {
+            gameStartPending = false;
+            showNewGame();
+        }
     }
 
     private void toggleVisibility() {
@@ -257,6 +333,58 @@ public class Main extends JPanel {
         repaint(); // Redraw the maze with the new visibility state
     }
 
+    private void toggleActiveRendering() {
+        activeRendering = !activeRendering;
+        System.out.println("Active rendering " + (activeRendering ? "on" : "off"));
+        if (engine.getMaze() != null) {
+            updateRenderingMode();
+        }
+    }
+
+    private void togglePerfOverlay() {
+        perfOverlayShown = !perfOverlayShown;
+        if (perfOverlayShown) {
+            perfOverlay.refresh();
+            perfTimer.start();
+        } else {
+            perfTimer.stop();
+        }
+        repaint(perfOverlay.getBounds());
+    }
+
+    private void refreshPerfOverlay() {
+        perfOverlay.refresh();
+        repaint(perfOverlay.getBounds());
+    }
+
+    // Swaps this panel for a canvas drawn by the game loop, or back
+    private void updateRenderingMode() {
+        if (activeRendering && canvas == null) {
+            canvas = new Canvas();
+            canvas.setBackground(getBackground());
+            canvas.setPreferredSize(new Dimension(dimension));
+            canvas.addKeyListener(new MazeKeyListener());
+            Container parent = getParent();
+            parent.add(canvas, parent.getComponentZOrder(this));
+            parent.remove(this);
+            window.pack(); // Makes the canvas displayable
+
+            gameLoop = new GameLoop(canvas, new ActiveRenderer(), UPDATES_PER_SECOND, FRAME_CAP);
+            gameLoop.start();
+            canvas.requestFocusInWindow();
+        } else if (!activeRendering && canvas != null) {
+            gameLoop.stop();
+            gameLoop = null;
+            Container parent = canvas.getParent();
+            parent.add(this, parent.getComponentZOrder(canvas));
+            parent.remove(canvas);
+            canvas = null;
+            window.pack();
+            requestFocusInWindow();
+            repaint();
+        }
+    }
+
     @Override
     public Dimension getPreferredSize() {
         return this.dimension;
@@ -297,225 +425,148 @@ public class Main extends JPanel {
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
+        long paintStart = perfMonitor.beginPaint();
+        paintMaze((Graphics2D) g, g.getClipBounds(), viewport.tileLeft(engine.getPlayerX()),
+                viewport.tileTop(engine.getPlayerY()));
+        perfMonitor.endPaint(paintStart);
+    }
 
+    // Draws the maze, the goal, the player, whose tile is placed at the given pixel position, and the overlay
+    private void paintMaze(Graphics2D g2d, Rectangle clip, int playerLeft, int playerTop) {
         g2d.setStroke(new BasicStroke(3.0f));
 
-        // Draw the entire grid in grey (as placeholders for invisible walls)
-        g2d.setColor(Color.LIGHT_GRAY);
-        for (int y = 0; y < maze.getHeight(); y++) {
-            for (int x = 0; x < maze.getWidth(); x++) {
-                g2d.drawRect(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
-            }
-        }
-
-        // Draw visible maze walls
-        for (int y = 0; y < maze.getHeight(); y++) {
-            for (int x = 0; x < maze.getWidth(); x++) {
-                if (!wallsInvisible || visibleWalls[x][y]) { // Check if walls are visible
-                    // Draw NORTH wall
-                    if (maze.isWall(x, y, Direction.NORTH)) {
-                        if (wallHits[x][y][0]) {
-                            g2d.setColor(Color.RED); // Red for hit NORTH wall
-                        } else if (!wallsInvisible) {
-                            g2d.setColor(Color.BLACK); // Black for visible wall
-                        } else {
-                            g2d.setColor(Color.LIGHT_GRAY); // Invisible for not hit NORTH wall
-                        }
-                        g2d.drawLine(x * TILE_SIZE, y * TILE_SIZE, (x + 1) * TILE_SIZE, y * TILE_SIZE);
-                    }
-
-                    // Draw SOUTH wall
-                    if (maze.isWall(x, y, Direction.SOUTH)) {
-                        if (wallHits[x][y][1]) {
-                            g2d.setColor(Color.RED); // Red for hit SOUTH wall
-                        } else if (!wallsInvisible) {
-                            g2d.setColor(Color.BLACK); // Black for visible wall
-                        } else {
-                            g2d.setColor(Color.LIGHT_GRAY); // Invisible for not hit SOUTH wall
-                        }
-                        g2d.drawLine(x * TILE_SIZE, (y + 1) * TILE_SIZE, (x + 1) * TILE_SIZE, (y + 1) * TILE_SIZE);
-                    }
-
-                    // Draw WEST wall
-                    if (maze.isWall(x, y, Direction.WEST)) {
-                        if (wallHits[x][y][2]) {
-                            g2d.setColor(Color.RED); // Red for hit WEST wall
-                        } else if (!wallsInvisible) {
-                            g2d.setColor(Color.BLACK); // Black for visible wall
-                        } else {
-                            g2d.setColor(Color.LIGHT_GRAY); // Invisible for not hit WEST wall
-                        }
-                        g2d.drawLine(x * TILE_SIZE, y * TILE_SIZE, x * TILE_SIZE, (y + 1) * TILE_SIZE);
-                    }
-
-                    // Draw EAST wall
-                    if (maze.isWall(x, y, Direction.EAST)) {
-                        if (wallHits[x][y][3]) {
-                            g2d.setColor(Color.RED); // Red for hit EAST wall
-                        } else if (!wallsInvisible) {
-                            g2d.setColor(Color.BLACK); // Black for visible wall
-                        } else {
-                            g2d.setColor(Color.LIGHT_GRAY); // Invisible for not hit EAST wall
-                        }
-                        g2d.drawLine((x + 1) * TILE_SIZE, y * TILE_SIZE, (x + 1) * TILE_SIZE, (y + 1) * TILE_SIZE);
-                    }
-                }
-            }
+        // Draw the grid and the walls within the dirty area, from the cached layer if the
+        // whole maze fits in the view and only the tiles in the viewport otherwise
+        if (wallLayers != null) {
+            wallLayers.paint(g2d, wallsInvisible, clip);
+        } else {
+            viewport.paint(g2d, wallsInvisible, clip);
         }
 
         // Define sizes for player and goal circles
-        int goalTileSize = TILE_SIZE / 2;
-        int playerTileSize = TILE_SIZE / 2;
+        int tileSize = viewport.getTileSize();
+        int goalTileSize = tileSize / 2;
+        int playerTileSize = tileSize / 2;
 
         // Draw goal (green circle) centered in its tile
+        int goalX = engine.getGoalX();
+        int goalY = engine.getGoalY();
         if (wallsInvisible || visibleToggled) {
-            g2d.setColor(Color.GREEN);
-            g2d.fillOval(goalX * TILE_SIZE + (TILE_SIZE - goalTileSize) / 2,
-                    goalY * TILE_SIZE + (TILE_SIZE - goalTileSize) / 2,
-                    goalTileSize,
-                    goalTileSize);
+            if (clip == null || clip.intersects(viewport.getTileBounds(goalX, goalY))) {
+                g2d.setColor(Color.GREEN);
+                g2d.fillOval(viewport.tileLeft(goalX) + (tileSize - goalTileSize) / 2,
+                        viewport.tileTop(goalY) + (tileSize - goalTileSize) / 2,
+                        goalTileSize,
+                        goalTileSize);
+            }
 
-            g2d.setColor(Color.BLUE);
-            g2d.fillOval(playerX * TILE_SIZE + (TILE_SIZE - playerTileSize) / 2,
-                    playerY * TILE_SIZE + (TILE_SIZE - playerTileSize) / 2,
-                    playerTileSize,
-                    playerTileSize);
+            if (clip == null || clip.intersects(playerLeft, playerTop, tileSize, tileSize)) {
+                g2d.setColor(Color.BLUE);
+                g2d.fillOval(playerLeft + (tileSize - playerTileSize) / 2,
+                        playerTop + (tileSize - playerTileSize) / 2,
+                        playerTileSize,
+                        playerTileSize);
+            }
+        }
+
+        toasts.paint(g2d, dimension.width, dimension.height);
+
+        if (perfOverlayShown) {
+            perfOverlay.paint(g2d);
         }
     }
 
-    private void startInvisibleTimer() {
-        // Cancel the existing timer if it's running
-        if (invisibleTimer != null) {
-            invisibleTimer.cancel();
-            invisibleTimer.purge(); // Removes any canceled tasks to free up memory
+    private void stopInvisibleTimer() {
+        // Cancel the running countdown; none of its callbacks run after this
+        if (invisibleCountdown != null) {
+            invisibleCountdown.cancel();
+            invisibleCountdown = null;
         }
 
-        // Reset game-related flags (e.g., wallsInvisible) before starting the new timer
+        // Reset game-related flags (e.g., wallsInvisible) until a new countdown ends
         wallsInvisible = false;
-        canMove = false; // Disable player movement at the start
+        engine.setMovable(false); // Disable player movement at the start
+    }
 
-        // Wrap invisibleTimerValue in an array to modify it in the TimerTask
-        final int[] invisibleTimerValue = { (int) (INVISIBLE_WALL_DELAY / 1000) }; // Convert milliseconds to seconds
+    private void startInvisibleTimer() {
+        stopInvisibleTimer();
 
-        // Create a new timer
-        invisibleTimer = new Timer();
+        // Count down on the shared game clock; both callbacks run on the EDT
+        invisibleCountdown = clock.countdown(INVISIBLE_WALL_DELAY / 1000, seconds -> {
+            // Update the label with the remaining time
+            invisibleTimerLabel.setText("Invisible in: " + seconds + " sec");
+        }, () -> {
+            invisibleTimerLabel.setText("Invisible in: 0 sec");
+            visibleToggled = false;
+            wallsInvisible = true; // Set walls to be invisible
+            engine.setMovable(true); // Allow the player to move
+            repaint(); // Redraw the maze to reflect the change in wall visibility
 
-        // Schedule the task to run every second and update the timer label
-        invisibleTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                // Update the label with the remaining time
-                SwingUtilities.invokeLater(() -> {
-                    try {
-                        int timerValue = Integer.parseInt(String.valueOf(invisibleTimerValue[0]));
-                        invisibleTimerLabel.setText("Invisible in: " + timerValue + " sec");
-                    } catch (NumberFormatException e) {
-                        invisibleTimerLabel.setText("Invisible in: 0 sec");
-                    }
-                });
-
-                // Decrement the countdown
-                invisibleTimerValue[0]--;
-
-                // Check if the timer has reached 0
-                if (invisibleTimerValue[0] == 0) {
-                    invisibleTimer.cancel(); // Stop the timer
-                    visibleToggled = false;
-                    wallsInvisible = true; // Set walls to be invisible
-                    canMove = true; // Allow the player to move
-                    repaint(); // Redraw the maze to reflect the change in wall visibility
-
-                    // Notify players that the walls are now invisible
-                    SwingUtilities.invokeLater(() -> {
-                        JOptionPane.showMessageDialog(Main.this,
-                                "Walls are now invisible! Player " + (playerATurn ? "A" : "B") + "'s turn!");
-                    });
-                }
-            }
-        }, 0, 1000); // Run every 1 second
+            // Notify players that the walls are now invisible
+            showToast("Walls are now invisible!\nPlayer " + (engine.isPlayerATurn() ? "A" : "B") + "'s turn!");
+        });
     }
 
-    public void resetWholeGame() {
-        // Reset game state
-        round = 1;
-        games = 0;
-        playerAWins = 0;
-        playerBWins = 0;
-        currentDifficulty = 1;
-        wallsInvisible = false;
-        canMove = false;
-        repaint();
+    // Shows a message over the maze for a while without blocking input
+    private void showToast(String message) {
+        showToast(message, message);
     }
 
-    private int[] getDifficulty(int currentDifficulty) {
-        int[] difficulty = new int[2];
-        switch (currentDifficulty) {
-            case 1:
-                difficulty[0] = WIDTH_EASY;
-                difficulty[1] = HEIGHT_EASY;
-                break;
-            case 2:
-                difficulty[0] = WIDTH_MEDIUM;
-                difficulty[1] = HEIGHT_MEDIUM;
-                break;
-            case 3:
-                difficulty[0] = WIDTH_HARD;
-                difficulty[1] = HEIGHT_HARD;
-                break;
-        }
-        return difficulty;
-    }
-
-    // private void resetGameState() {
-    // // Reset other game states like player position, score, etc.
-    // wallsInvisible = false; // Reset wall visibility at the start of each game
-    // visibleWalls = new boolean[maze.getWidth()][maze.getHeight()];
-    // repaint(); // Repaint the maze
-    // }
-
-    private void startGame(int width, int height) {
-        maze = new RecursiveBacktracker(width, height);
-
-        contentPanel.remove(placeholderLabel);
-
-        maze.generate();
-
-        visibleWalls = new boolean[width][height]; // Initialize invisible walls
+    // Shows a message that replaces any message with the same key
+    private void showToast(String key, String message) {
+        Rectangle before = getToastBounds();
+        toasts.post(key, message);
+        toastsChanged(before);
+    }
 
-        // Initialize wall hit tracking (4 directions per tile)
-        wallHits = new boolean[width][height][4]; // 0=NORTH, 1=SOUTH, 2=WEST, 3=EAST
+    // Shows a message that holds the game until Enter or Space is pressed, then runs an action
+    private void showConfirm(String message, Runnable action) {
+        Rectangle before = getToastBounds();
+        toasts.postConfirm(message, action);
+        toastsChanged(before);
+    }
 
-        heartsA = heartsB = 3; // Start with 3 hearts for both players
+    private void confirmToast() {
+        Rectangle before = getToastBounds();
+        toasts.confirm();
+        toastsChanged(before);
+    }
 
-        // Randomize player position
-        Random random = new Random();
-        do {
-            playerX = random.nextInt(width);
-            playerY = random.nextInt(height);
-        } while (Math.abs(playerX - goalX) < MIN_DISTANCE_FROM_START
-                || Math.abs(playerY - goalY) < MIN_DISTANCE_FROM_START);
+    private void updateToasts() {
+        Rectangle before = getToastBounds();
+        if (toasts.update()) {
+            toastsChanged(before);
+        }
+        if (toasts.isEmpty()) {
+            toastTimer.stop();
+        }
+    }
 
-        // Set goal position randomly
-        do {
-            goalX = random.nextInt(width);
-            goalY = random.nextInt(height);
-        } while (Math.abs(goalX - playerX) < MIN_DISTANCE_FROM_START
-                || Math.abs(goalY - playerY) < MIN_DISTANCE_FROM_START);
+    private void toastsChanged(Rectangle before) {
+        repaint(before);
+        repaint(getToastBounds());
+        if (!toasts.isEmpty()) {
+            toastTimer.start();
+        }
+    }
 
-        playerXOri = playerX;
-        playerYOri = playerY;
+    private Rectangle getToastBounds() {
+        return toasts.getBounds(dimension.width, dimension.height);
+    }
 
-        if (!practiceMode)
-            changePlayerTurn();
+    private String getTurnMessage() {
+        return "Round: " + engine.getRound() + "\nGames: " + (engine.getGames() + 1) + "\nPlayer "
+                + (engine.isPlayerATurn() ? "A" : "B") + "'s turn!";
+    }
 
-        // Reset shapes for the maze
-        shapes.clear();
-        loadMaze();
+    // Fits the window to the game the engine started and starts the invisible walls timer
+    private void showNewGame() {
+        contentPanel.remove(placeholderLabel);
 
-        int panelWidth = maze.getWidth() * TILE_SIZE + 1;
-        int panelHeight = maze.getHeight() * TILE_SIZE + 1;
-        setPreferredSize(new Dimension(panelWidth, panelHeight));
+        setPreferredSize(new Dimension(dimension));
+        if (canvas != null) {
+            canvas.setPreferredSize(new Dimension(dimension));
+        }
 
         if (!statusPanelCreated) {
             createStatusPanel();
@@ -527,255 +578,338 @@ public class Main extends JPanel {
 
         revalidate(); // Refresh layout
         window.pack(); // Resize the window based on the preferred size
-
-        startInvisibleTimer(); // Start the invisible walls timer
+        updateRenderingMode();
+
+        // Keep the walls visible and the player still until the invisible walls timer ends
+        stopInvisibleTimer();
+        Rectangle before = getToastBounds();
+        toasts.clearConfirms(); // Confirmations of an earlier game no longer apply
+        toastsChanged(before);
+        if (engine.isPracticeMode()) {
+            startInvisibleTimer(); // Start the invisible walls timer
+        } else {
+            showConfirm(getTurnMessage(), this::startInvisibleTimer); // Start it once the players are ready
+        }
     }
 
     // Method to update status labels dynamically
     private void updateStatus() {
-        roundLabel.setText("Round: " + round);
-        gameLabel.setText("Game: " + (games + 1));
-        playerLabel.setText("Player: " + (playerATurn ? "A" : "B"));
-        heartsLabel.setText("Hearts: " + (playerATurn ? heartsA : heartsB));
-        playerAWinsLabel.setText("A Wins: " + playerAWins);
-        playerBWinsLabel.setText("B Wins: " + playerBWins);
-        try {
-            int timerValue = Integer.parseInt(String.valueOf(invisibleTimer));
-            invisibleTimerLabel.setText("Invisible in: " + timerValue + " sec");
-        } catch (NumberFormatException e) {
-            invisibleTimerLabel.setText("Invisible in: 0 sec");
+        roundLabel.setText("Round: " + engine.getRound());
+        gameLabel.setText("Game: " + (engine.getGames() + 1));
+        playerLabel.setText("Player: " + (engine.isPlayerATurn() ? "A" : "B"));
+        heartsLabel.setText("Hearts: " + engine.getHearts());
+        playerAWinsLabel.setText("A Wins: " + engine.getPlayerAWins());
+        playerBWinsLabel.setText("B Wins: " + engine.getPlayerBWins());
+        invisibleTimerLabel.setText("Invisible in: " + getInvisibleSeconds() + " sec");
+    }
+
+    private int getInvisibleSeconds() {
+        return (invisibleCountdown == null) ? 0 : invisibleCountdown.getRemaining();
+    }
+
+    // Builds the view of a new maze; called with the render lock held
+    private void loadMaze() {
+        Maze maze = engine.getMaze();
+        int panelWidth = Math.min(maze.getWidth() * TILE_SIZE + 1, MAX_VIEW_SIZE);
+        int panelHeight = Math.min(maze.getHeight() * TILE_SIZE + 1, MAX_VIEW_SIZE);
+        dimension.setSize(panelWidth, panelHeight);
+
+        viewport = new Viewport(maze, new MazeTileState(), TILE_SIZE);
+        viewport.setViewSize(panelWidth, panelHeight);
+        viewport.centerOn(engine.getPlayerX(), engine.getPlayerY());
+
+        // Render the grid and the walls once if the whole maze fits; wall hits patch single tiles
+        if (maze.getWidth() * TILE_SIZE + 1 <= MAX_VIEW_SIZE && maze.getHeight() * TILE_SIZE + 1 <= MAX_VIEW_SIZE) {
+            wallLayers = new WallLayerCache(maze, TILE_SIZE, 3.0f, new MazeTileState());
+        } else {
+            wallLayers = null;
         }
     }
 
-    private void playSound(String soundFilePath) {
-        try {
-            if (clip != null && clip.isRunning()) {
-                clip.stop();
-            }
-            AudioInputStream audioInputStream = AudioSystem
-                    .getAudioInputStream(new File(soundFilePath).getAbsoluteFile());
-            clip = AudioSystem.getClip();
-            clip.open(audioInputStream);
-            clip.start();
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-            e.printStackTrace();
+    // Queues a move from a key press for the next game tick
+    private void queueMove(Direction direction) {
+        boolean repeat = keysHeld[direction.ordinal()];
+        keysHeld[direction.ordinal()] = true;
+        if (inputs.offer(direction, repeat, System.nanoTime())) {
+            inputTimer.start();
         }
     }
 
-    private void loadMaze() {
-        for (int y = 0; y < maze.getHeight(); ++y) {
-            for (int x = 0; x < maze.getWidth(); ++x) {
-                // Add walls for each cell based on maze structure
-                if (maze.isWall(x, y, Direction.NORTH)) {
-                    shapes.add(new Line2D.Float(x * TILE_SIZE, y * TILE_SIZE, (x + 1) * TILE_SIZE, y * TILE_SIZE));
-                }
-                if (maze.isWall(x, y, Direction.SOUTH)) {
-                    shapes.add(new Line2D.Float(x * TILE_SIZE, (y + 1) * TILE_SIZE, (x + 1) * TILE_SIZE,
-                            (y + 1) * TILE_SIZE));
-                }
-                if (maze.isWall(x, y, Direction.WEST)) {
-                    shapes.add(new Line2D.Float(x * TILE_SIZE, y * TILE_SIZE, x * TILE_SIZE, (y + 1) * TILE_SIZE));
-                }
-                if (maze.isWall(x, y, Direction.EAST)) {
-                    shapes.add(new Line2D.Float((x + 1) * TILE_SIZE, y * TILE_SIZE, (x + 1) * TILE_SIZE,
-                            (y + 1) * TILE_SIZE));
+    // Plays the moves queued since the last tick as one batch, with a single repaint
+    private void playInputs() {
+        if (inputs.isEmpty()) {
+            inputTimer.stop();
+            return;
+        }
+        long moveStart = System.nanoTime();
+        Rectangle dirty = null;
+        boolean scrolled = false;
+        synchronized (renderLock) {
+            Direction direction;
+            while (!gameStartPending && engine.isMovable() && !toasts.isAwaitingConfirm()
+                    && (direction = inputs.poll()) != null) {
+                perfMonitor.inputReceived(inputs.getLastTime());
+                int oldX = engine.getPlayerX();
+                int oldY = engine.getPlayerY();
+                engine.move(direction); // Calls back the engine listener for what changed
+                if (!gameStartPending) {
+                    scrolled |= viewport.follow(engine.getPlayerX(), engine.getPlayerY());
+                    // Only the tiles the player left and entered have changed
+                    Rectangle tiles = viewport.getTileBounds(oldX, oldY)
+                            .union(viewport.getTileBounds(engine.getPlayerX(), engine.getPlayerY()));
+                    dirty = (dirty == null) ? tiles : dirty.union(tiles);
                 }
             }
+            inputs.clear(); // Moves left over once moves are disabled no longer apply
         }
-
-        int panelWidth = maze.getWidth() * TILE_SIZE + 1;
-        int panelHeight = maze.getHeight() * TILE_SIZE + 1;
-        dimension.setSize(panelWidth, panelHeight);
+        if (gameStartPending) {
+            gameStartPending = false;
+            showNewGame(); // Reaching the goal or losing started the next game
+        } else if (scrolled) {
+            repaint(); // The viewport scrolled to keep the player in view
+        } else if (dirty != null) {
+            repaint(dirty);
+        }
+        updateStatus();
+        perfMonitor.recordMove(System.nanoTime() - moveStart);
     }
 
-    private void handlePlayerMove(Direction direction) {
-        int newX = playerX;
-        int newY = playerY;
-
-        // Determine new player position based on direction
-        switch (direction) {
-            case NORTH:
-                newY--;
-                break;
-            case SOUTH:
-                newY++;
-                break;
-            case WEST:
-                newX--;
-                break;
-            case EAST:
-                newX++;
-                break;
-        }
-
-        // Check bounds and walls
-        if (newX >= 0 && newX < maze.getWidth() && newY >= 0 && newY < maze.getHeight()) {
-            if (!maze.isWall(playerX, playerY, direction)) { // No wall in the direction
-                playerX = newX;
-                playerY = newY;
+    private void markWall(int x, int y) {
+        synchronized (renderLock) {
+            if (wallLayers != null) {
+                repaint(wallLayers.patchTile(x, y)); // Repaint only the patched tile
             } else {
-                // Hit a wall
-                playSound("src/assets/hit-wall.wav");
-                System.out.println("Hit a wall! at " + playerX + ", " + playerY);
-
-                switch (direction) {
-                    case NORTH:
-                        wallHits[playerX][playerY][0] = true; // NORTH
-                        break;
-                    case SOUTH:
-                        wallHits[playerX][playerY][1] = true; // SOUTH
-                        break;
-                    case WEST:
-                        wallHits[playerX][playerY][2] = true; // WEST
-                        break;
-                    case EAST:
-                        wallHits[playerX][playerY][3] = true; // EAST
-                        break;
-                }
-
-                markWall(playerX, playerY); // Mark the wall as visible
-                if (playerATurn) {
-                    System.out.println("Player A lost a heart!" + heartsA);
-                    JOptionPane.showMessageDialog(this, "You hit a wall! Hearts left: " + --heartsA);
-                    if (heartsA == 0) {
-                        playerATurn = false;
-                        JOptionPane.showMessageDialog(this, "Player A lost all hearts!");
-                        currentGameAttempts++;
-                        if (!(currentGameAttempts > 2))
-                            JOptionPane.showMessageDialog(this,
-                                    "\nRound: " + round + "\nGames: " + (games + 1) + "\nPlayer "
-                                            + (playerATurn ? "A" : "B") + "'s turn!");
-                        heartsA = 3;
-                        resetPlayerPosition();
-                    }
-                } else {
-                    System.out.println("Player B lost a heart!" + heartsB);
-                    JOptionPane.showMessageDialog(this, "You hit a wall! Hearts left: " + --heartsB);
-                    if (heartsB == 0) {
-                        playerATurn = true;
-                        JOptionPane.showMessageDialog(this, "Player B lost all hearts!");
-                        currentGameAttempts++;
-                        if (!(currentGameAttempts > 2))
-                            JOptionPane.showMessageDialog(this,
-                                    "\nRound: " + round + "\nGames: " + (games + 1) + "\nPlayer "
-                                            + (playerATurn ? "A" : "B") + "'s turn!");
-                        heartsB = 3;
-                        resetPlayerPosition();
-                    }
-                }
+                repaintTile(x, y);
             }
-            checkGameOver();
         }
-        repaint();
+    }
 
+    private void repaintTile(int x, int y) {
+        repaint(viewport.getTileBounds(x, y));
     }
 
-    private void markWall(int x, int y) {
-        visibleWalls[x][y] = true;
+    private void zoom(boolean in) {
+        synchronized (renderLock) {
+            if (in) {
+                viewport.zoomIn();
+            } else {
+                viewport.zoomOut();
+            }
+            viewport.centerOn(engine.getPlayerX(), engine.getPlayerY());
+        }
         repaint();
     }
 
-    private void resetPlayerPosition() {
-        playerX = playerXOri;
-        playerY = playerYOri;
+    // Saves the replay of a finished game. Called within engine.move, so under renderLock on the EDT:
+    // the bytes are taken here, while the maze cannot change, and written on the writer thread
+    private void saveReplay(Replay replay) {
+        if (replayDir == null) {
+            return;
+        }
+        byte[] bytes = replay.toBytes();
+        Path file = replayDir.resolve("replay-" + System.currentTimeMillis() + ".imr");
+        replayWriter.execute(() -> {
+            try {
+                Files.write(file, bytes);
+                System.out.println("Replay saved to " + file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
     }
 
-    private void changePlayerTurn() {
-        if (games % 2 == 0) {
-            playerATurn = true;
-        } else if (!(currentGameAttempts > 2)) {
-            playerATurn = false;
-        } else {
-            playerATurn = !playerATurn;
+    // Shows what the engine reports: sounds, revealed walls and messages, and records the game
+    private class EngineListener implements GameListener {
+        @Override
+        public void gameStarted() {
+            recorder.gameStarted();
+            long generationNanos = engine.getGenerationNanos();
+            if (generationNanos >= 0) {
+                perfMonitor.recordGeneration(generationNanos);
+            }
+            if (engine.getMaze() instanceof RandomizedMaze) {
+                System.out.println("Maze seed: " + ((RandomizedMaze) engine.getMaze()).getSeed());
+            }
+            loadMaze();
+            gameStartPending = true; // Resize the window once the engine call returns
         }
-        JOptionPane.showMessageDialog(this,
-                "\nRound: " + round + "\nGames: " + (games + 1) + "\nPlayer " + (playerATurn ? "A" : "B") + "'s turn!");
-    }
 
-    private void checkGameOver() {
-        if (playerX == goalX && playerY == goalY) {
-            // if (currentGameAttempts > 2)
-                currentGameAttempts = 1;
-            games++;
-            System.out.println("Player " + (playerATurn ? "A" : "B") + " reached the goal!");
-            if (playerATurn) {
-                playerAWins++;
-            } else {
-                playerBWins++;
+        @Override
+        public void playerMoved(int fromX, int fromY, int toX, int toY) {
+            recorder.playerMoved(fromX, fromY, toX, toY);
+        }
+
+        @Override
+        public void wallHit(int x, int y, Direction direction, int heartsLeft) {
+            recorder.wallHit(x, y, direction, heartsLeft);
+            sounds.play(HIT_WALL_SOUND); // Queued to the audio thread
+            System.out.println("Hit a wall! at " + x + ", " + y);
+            markWall(x, y); // Mark the wall as visible
+            System.out.println("Player " + (engine.isPlayerATurn() ? "A" : "B") + " lost a heart!" + (heartsLeft + 1));
+            if (heartsLeft > 0) {
+                showToast("hearts", "You hit a wall! Hearts left: " + heartsLeft);
             }
-            if (playerAWins == 4) {
-                JOptionPane.showMessageDialog(this, "Player A Wins the Game!");
-                resetWholeGame();
-            } else if (playerBWins == 4) {
-                JOptionPane.showMessageDialog(this, "Player B Wins the Game!");
-                resetWholeGame();
-            } else if (playerAWins == 3 && playerBWins == 3) {
-                JOptionPane.showMessageDialog(this, "It's a Draw!");
-                resetWholeGame();
+        }
+
+        @Override
+        public void heartsLost(boolean playerA, boolean handover) {
+            recorder.heartsLost(playerA, handover);
+            String message = "Player " + (playerA ? "A" : "B") + " lost all hearts!";
+            if (handover) {
+                showConfirm(message + "\n" + getTurnMessage(), null);
             } else {
-                startNextRound();
+                showToast(message);
             }
-        } else if (currentGameAttempts > 2) {
-            currentGameAttempts = 1;
-            games++;
-            JOptionPane.showMessageDialog(this,
-                    "Both players lost the game! Starting new game!");
-            startNextRound();
         }
-        updateStatus();
-    }
 
-    private void startNextRound() {
-        if (practiceMode) {
-            JOptionPane.showMessageDialog(this, "Game Over!"
-                    + "\nCongratulations on completing the practice mode!");
-            resetWholeGame();
+        @Override
+        public void goalReached(boolean playerA) {
+            recorder.goalReached(playerA);
+            System.out.println("Player " + (playerA ? "A" : "B") + " reached the goal!");
         }
 
-        else if (games % 2 == 0) {
-            round++;
-            currentDifficulty++;
-            if (round == 2) {
-                startGame(WIDTH_MEDIUM, HEIGHT_MEDIUM);
-            } else if (round == 3) {
-                startGame(WIDTH_HARD, HEIGHT_HARD);
+        @Override
+        public void gameLost() {
+            recorder.gameLost();
+            showToast("Both players lost the game!\nStarting new game!");
+        }
+
+        @Override
+        public void matchOver(int playerAWins, int playerBWins, boolean early) {
+            if (early) {
+                showConfirm(playerAWins > playerBWins ? "Player A Wins the Game!"
+                        : (playerBWins > playerAWins) ? "Player B Wins the Game!" : "It's a Draw!", null);
             } else {
-                JOptionPane.showMessageDialog(this, "Game Over!\n Player A Wins: " + playerAWins + "\n Player B Wins: "
+                showConfirm("Game Over!\nPlayer A Wins: " + playerAWins + "\nPlayer B Wins: "
                         + playerBWins + (playerAWins > playerBWins ? "\nPlayer A Wins!"
-                                : (playerBWins > playerAWins) ? "\nPlayer B Wins!" : "\nIt's a Draw!"));
-                resetWholeGame();
+                                : (playerBWins > playerAWins) ? "\nPlayer B Wins!" : "\nIt's a Draw!"), null);
+            }
+        }
+
+        @Override
+        public void practiceOver() {
+            showConfirm("Game Over!"
+                    + "\nCongratulations on completing the practice mode!", null);
+        }
+
+        @Override
+        public void matchReset() {
+            wallsInvisible = false;
+            repaint();
+        }
+    }
+
+    // Exposes the revealed tiles and wall hits to the wall layer cache
+    private class MazeTileState implements TileState {
+        @Override
+        public boolean isRevealed(int x, int y) {
+            return engine.isRevealed(x, y);
+        }
+
+        @Override
+        public boolean isHit(int x, int y, Direction d) {
+            return engine.isHit(x, y, d);
+        }
+    }
+
+    // Draws the game on the canvas from the game loop thread, sliding the player between
+    // the positions of the last two game steps
+    private class ActiveRenderer implements GameLoop.Game {
+        private int lastX, lastY, shownX, shownY;
+
+        @Override
+        public void update() {
+            synchronized (renderLock) {
+                int x = engine.getPlayerX();
+                int y = engine.getPlayerY();
+                if (Math.abs(x - shownX) + Math.abs(y - shownY) > 1) {
+                    // Jumped back to the start or into a new maze: do not slide
+                    shownX = x;
+                    shownY = y;
+                }
+                lastX = shownX;
+                lastY = shownY;
+                shownX = x;
+                shownY = y;
+            }
+        }
+
+        @Override
+        public void render(Graphics2D g, double alpha) {
+            synchronized (renderLock) {
+                g.setColor(canvas.getBackground());
+                g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+                long paintStart = perfMonitor.beginPaint();
+                int left = viewport.tileLeft(lastX);
+                int top = viewport.tileTop(lastY);
+                left += (int) Math.round((viewport.tileLeft(shownX) - left) * alpha);
+                top += (int) Math.round((viewport.tileTop(shownY) - top) * alpha);
+                paintMaze(g, null, left, top);
+                perfMonitor.endPaint(paintStart);
             }
-        } else {
-            startGame(getDifficulty(currentDifficulty)[0], getDifficulty(currentDifficulty)[1]);
         }
     }
 
     private class MazeKeyListener extends KeyAdapter {
         @Override
         public void keyPressed(KeyEvent e) {
-            if (!canMove) {
+            int key = e.getKeyCode();
+
+            // Zoom the viewport of a maze larger than the view
+            if (viewport != null && wallLayers == null) {
+                switch (key) {
+                    case KeyEvent.VK_EQUALS:
+                    case KeyEvent.VK_PLUS:
+                    case KeyEvent.VK_ADD:
+                        zoom(true);
+                        return;
+                    case KeyEvent.VK_MINUS:
+                    case KeyEvent.VK_SUBTRACT:
+                        zoom(false);
+                        return;
+                }
+            }
+
+            // Enter or Space dismisses the message shown; a confirmation holds the game until then
+            if (key == KeyEvent.VK_ENTER || key == KeyEvent.VK_SPACE) {
+                confirmToast();
                 return;
             }
 
-            int key = e.getKeyCode();
+            if (!engine.isMovable() || toasts.isAwaitingConfirm()) {
+                return;
+            }
+
+            Direction direction = getDirection(key);
+            if (direction != null) {
+                queueMove(direction);
+            }
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            Direction direction = getDirection(e.getKeyCode());
+            if (direction != null) {
+                keysHeld[direction.ordinal()] = false;
+            }
+        }
 
+        private Direction getDirection(int key) {
             switch (key) {
                 case KeyEvent.VK_UP:
                 case 'W':
-                    handlePlayerMove(Direction.NORTH);
-                    break;
+                    return Direction.NORTH;
                 case KeyEvent.VK_DOWN:
                 case 'S':
-                    handlePlayerMove(Direction.SOUTH);
-                    break;
+                    return Direction.SOUTH;
                 case KeyEvent.VK_LEFT:
                 case 'A':
-                    handlePlayerMove(Direction.WEST);
-                    break;
+                    return Direction.WEST;
                 case KeyEvent.VK_RIGHT:
                 case 'D':
-                    handlePlayerMove(Direction.EAST);
-                    break;
+                    return Direction.EAST;
+                default:
+                    return null;
             }
         }
     }
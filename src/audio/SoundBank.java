@@ -0,0 +1,174 @@
+package audio;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Sound effects, decoded once and played from a small pool of open clips, so
+ * a sound can overlap itself without opening a line per play. All audio work
+ * is done on one daemon thread: {@link #load}, {@link #play} and
+ * {@link #close} only queue a task and return at once, so they may be called
+ * from the event dispatch thread.
+ * <p>
+ * Sounds are read from the classpath. A sound that cannot be read or opened
+ * is reported once and stays silent.
+ */
+public class SoundBank implements AutoCloseable {
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Audio");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* Only accessed on the worker thread. */
+    private final Map<String, Voices> sounds = new HashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * Decodes a sound and opens its clips in the background.
+     *
+     * @param  name the name to play the sound by
+     * @param  resource the absolute classpath resource, such as {@code /assets/hit-wall.wav}
+     * @param  voices the number of clips, the most plays of the sound that can overlap
+     * @throws IllegalArgumentException if voices is not positive
+     * @throws NullPointerException if name or resource is null
+     */
+    public void load(String name, String resource, int voices) {
+        if (name == null || resource == null) {
+            throw new NullPointerException();
+        }
+        if (voices <= 0) {
+            throw new IllegalArgumentException("Voices must be positive");
+        }
+        submit(() -> {
+            Voices old = sounds.put(name, open(resource, voices));
+            if (old != null) {
+                old.close();
+            }
+        });
+    }
+
+    /**
+     * Plays a sound on a free clip, or restarts the clip that has played the
+     * longest if all are busy. Sounds not loaded are ignored.
+     *
+     * @param name the name of the sound
+     */
+    public void play(String name) {
+        submit(() -> {
+            Voices voices = sounds.get(name);
+            if (voices != null) {
+                voices.play();
+            }
+        });
+    }
+
+    /** Closes every clip and stops the audio thread once queued plays are done. */
+    @Override
+    public void close() {
+        submit(() -> {
+            for (Voices voices : sounds.values()) {
+                voices.close();
+            }
+            sounds.clear();
+        });
+        closed = true;
+        worker.shutdown();
+    }
+
+    private void submit(Runnable task) {
+        if (closed) {
+            return;
+        }
+        try {
+            worker.execute(task);
+        } catch (RejectedExecutionException e) {
+            /* Closed by another thread in the meantime. */
+        }
+    }
+
+    /** Decodes a sound and opens its clips; failures leave no clips. */
+    private static Voices open(String resource, int count) {
+        Clip[] clips = new Clip[0];
+        try (AudioInputStream audio = AudioSystem.getAudioInputStream(new BufferedInputStream(openResource(resource)))) {
+            AudioFormat format = audio.getFormat();
+            byte[] data = audio.readAllBytes();
+            clips = new Clip[count];
+            for (int i = 0; i < count; ++i) {
+                clips[i] = AudioSystem.getClip();
+                clips[i].open(format, data, 0, data.length);
+            }
+        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException
+                | IllegalArgumentException e) {
+            e.printStackTrace();
+            for (Clip clip : clips) {
+                if (clip != null) {
+                    clip.close();
+                }
+            }
+            clips = new Clip[0];
+        }
+        return new Voices(clips);
+    }
+
+    /** Opens a classpath resource, falling back to the source tree when run from the project directory. */
+    private static InputStream openResource(String resource) throws IOException {
+        URL url = SoundBank.class.getResource(resource);
+        if (url != null) {
+            return url.openStream();
+        }
+        return Files.newInputStream(Paths.get("src", resource));
+    }
+
+    /** The open clips of one sound. */
+    private static final class Voices {
+        private final Clip[] clips;
+        private int next;
+
+        Voices(Clip[] clips) {
+            this.clips = clips;
+        }
+
+        void play() {
+            if (clips.length == 0) {
+                return;
+            }
+            int chosen = next;
+            for (int i = 0; i < clips.length; ++i) {
+                int candidate = (next + i) % clips.length;
+                if (!clips[candidate].isRunning()) {
+                    chosen = candidate;
+                    break;
+                }
+            }
+            Clip clip = clips[chosen];
+            clip.stop();
+            clip.setFramePosition(0);
+            clip.start();
+            next = (chosen + 1) % clips.length;
+        }
+
+        void close() {
+            for (Clip clip : clips) {
+                clip.close();
+            }
+        }
+    }
+}
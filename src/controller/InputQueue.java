@@ -0,0 +1,102 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import maze.Direction;
+
+/**
+ * A bounded queue of timestamped moves, from the thread that receives key
+ * events to the thread that plays them once per game tick. The queue is a
+ * ring buffer without locks for one producer and one consumer: each side
+ * owns one index and publishes it to the other with an ordered write.
+ * <p>
+ * Key repeats coalesce: a repeat of a held key is dropped while a repeat of
+ * the same move still waits, so a consumer that falls behind does not play
+ * a backlog of repeats. Moves of separate key presses are never dropped
+ * unless the queue is full.
+ */
+public class InputQueue {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int REPEAT = 1 << 2; // Marks a key repeat, above the direction ordinals
+
+    private final byte[] moves; // Direction ordinals, with REPEAT set for key repeats
+    private final long[] times;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // Next slot to poll; written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to fill; written by the producer
+    private long lastTime; // Only accessed by the consumer
+
+    /**
+     * Creates a queue.
+     *
+     * @param  capacity the most moves that can wait, a power of two
+     * @throws IllegalArgumentException if capacity is not a positive power of two
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two");
+        }
+        moves = new byte[capacity];
+        times = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Queues a move; called by the producer only.
+     *
+     * @param  direction the direction of the move
+     * @param  repeat true if the key was already held, so the event is a key repeat
+     * @param  nanos the {@link System#nanoTime()} of the key event
+     * @return true if the move was queued, false if it was coalesced or the
+     *         queue is full
+     * @throws NullPointerException if direction is null
+     */
+    public boolean offer(Direction direction, boolean repeat, long nanos) {
+        int move = direction.ordinal() | (repeat ? REPEAT : 0);
+        long t = tail.get();
+        if (repeat && t > head.get() && moves[(int) (t - 1) & mask] == move) {
+            return false; // The same repeat still waits
+        }
+        if (t - head.get() == moves.length) {
+            return false;
+        }
+        int slot = (int) t & mask;
+        moves[slot] = (byte) move;
+        times[slot] = nanos;
+        tail.lazySet(t + 1); // Publishes the slot
+        return true;
+    }
+
+    /**
+     * Takes the oldest move; called by the consumer only.
+     *
+     * @return the direction of the move, or null if the queue is empty
+     */
+    public Direction poll() {
+        long h = head.get();
+        if (h == tail.get()) {
+            return null;
+        }
+        int slot = (int) h & mask;
+        Direction direction = DIRECTIONS[moves[slot] & ~REPEAT];
+        lastTime = times[slot];
+        head.lazySet(h + 1); // Frees the slot
+        return direction;
+    }
+
+    /** Returns the time of the key event of the move last polled, or 0 if none was. */
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /** Drops the moves that wait; called by the consumer only. */
+    public void clear() {
+        head.lazySet(tail.get());
+    }
+
+    /** Returns true if no move waits. */
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
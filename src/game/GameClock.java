@@ -0,0 +1,158 @@
+package game;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * The one clock of the game: a single daemon thread that keeps time for every
+ * countdown and delayed task, for as long as the game runs. Callbacks are not
+ * run on the clock thread but handed to an executor, usually the event
+ * dispatch thread, so game state is only ever changed there.
+ * <p>
+ * A countdown or task cancelled from the callback executor never calls back
+ * afterwards, even if its clock tick had already been handed over.
+ */
+public class GameClock implements AutoCloseable {
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Executor callbacks;
+
+    /**
+     * Creates a clock.
+     *
+     * @param  callbacks where to run callbacks, such as {@code SwingUtilities::invokeLater}
+     * @throws NullPointerException if callbacks is null
+     */
+    public GameClock(Executor callbacks) {
+        if (callbacks == null) {
+            throw new NullPointerException();
+        }
+        this.callbacks = callbacks;
+        scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "Game Clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts a countdown in whole seconds. onTick is called at once with the
+     * number of seconds, then once a second with one less, down to 1; a
+     * second later onFinish is called.
+     *
+     * @param  seconds the length of the countdown
+     * @param  onTick called with the seconds left
+     * @param  onFinish called when the countdown reaches zero
+     * @return the countdown
+     * @throws IllegalArgumentException if seconds is negative
+     * @throws NullPointerException if onTick or onFinish is null
+     */
+    public Countdown countdown(int seconds, IntConsumer onTick, Runnable onFinish) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Seconds must not be negative");
+        }
+        if (onTick == null || onFinish == null) {
+            throw new NullPointerException();
+        }
+        Countdown countdown = new Countdown(seconds, onTick, onFinish);
+        /* The last tick cancels the future, which must be assigned by then: a
+         * countdown from zero ends on its first tick, so it runs just once. */
+        countdown.future = (seconds == 0) ? scheduler.schedule(countdown::tick, 0, TimeUnit.SECONDS)
+                : scheduler.scheduleAtFixedRate(countdown::tick, 0, 1, TimeUnit.SECONDS);
+        return countdown;
+    }
+
+    /**
+     * Runs a task once after a delay.
+     *
+     * @param  delayMillis the delay in milliseconds
+     * @param  task the task
+     * @return the countdown that runs the task, to cancel it
+     * @throws NullPointerException if task is null
+     */
+    public Countdown schedule(long delayMillis, Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        Countdown countdown = new Countdown(0, s -> { }, task);
+        countdown.future = scheduler.schedule(countdown::tick, Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        return countdown;
+    }
+
+    /** Stops the clock; pending countdowns never finish. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /** A running countdown. */
+    public final class Countdown {
+        private final IntConsumer onTick;
+        private final Runnable onFinish;
+        private volatile int remaining;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private volatile ScheduledFuture<?> future;
+        private int ticked; // Only accessed on the clock thread
+
+        private Countdown(int seconds, IntConsumer onTick, Runnable onFinish) {
+            this.onTick = onTick;
+            this.onFinish = onFinish;
+            remaining = seconds;
+            ticked = seconds;
+        }
+
+        /** Returns the seconds left, as last reported to onTick, or 0 once finished. */
+        public int getRemaining() {
+            return remaining;
+        }
+
+        /** Returns true if the countdown reached zero and called onFinish. */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /** Returns true if the countdown was cancelled. */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Cancels the countdown. Called from the callback executor, no
+         * callback of the countdown runs after this returns.
+         */
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> f = future;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+
+        /* Runs on the clock thread; hands the tick over to the callback executor. */
+        private void tick() {
+            int seconds = ticked--;
+            if (seconds <= 0) {
+                ScheduledFuture<?> f = future;
+                if (f != null) {
+                    f.cancel(false);
+                }
+            }
+            callbacks.execute(() -> {
+                if (cancelled || finished) {
+                    return;
+                }
+                remaining = Math.max(0, seconds);
+                if (seconds > 0) {
+                    onTick.accept(seconds);
+                } else {
+                    finished = true;
+                    onFinish.run();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package game;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import controller.OutOfBoundsException;
+import maze.Direction;
+import maze.Maze;
+import maze.RecursiveBacktracker;
+import solver.MazeSolver;
+import solver.StartGoalPlacer;
+
+/**
+ * The rules of the game, without a display. Two players take turns to walk
+ * a maze whose walls they cannot see: every wall they hit costs a heart and
+ * is revealed, and a player who loses all hearts hands the maze to the
+ * other. A 1v1 match is played over three rounds of growing mazes, two games
+ * a round; practice is a single game.
+ * <p>
+ * The engine takes move commands and reports what changed to a
+ * {@link GameListener}. All state is kept in primitive arrays and fields:
+ * moves read a snapshot of the walls and never allocate, so millions of moves
+ * can be processed per second. Mazes and placements are drawn from one seeded
+ * random generator, so an engine created with the same seed plays the same
+ * mazes for the same commands. An engine is not safe for use by multiple
+ * threads.
+ */
+public class GameEngine {
+    /** The hearts each player starts a game with. */
+    public static final int HEARTS = 3;
+
+    /** The difficulties and the size of their mazes. */
+    public static final int EASY = 1;
+    public static final int MEDIUM = 2;
+    public static final int HARD = 3;
+    public static final int LARGE = 4;
+
+    /** The results of {@link #move(Direction)}. */
+    public static final int IGNORED = 0;
+    public static final int BLOCKED = 1;
+    public static final int MOVED = 2;
+    public static final int HIT_WALL = 3;
+
+    private static final int[] SIZES = { 0, 5, 7, 9, 1000 };
+
+    private static final int MIN_DISTANCE_FROM_START = 6; // Minimum path length from starting point
+    private static final double GOAL_DISTANCE_PERCENTILE = 0.75; // Percentile of path lengths for the goal
+
+    private static final int GAMES_TO_WIN = 4;
+    private static final int LAST_ROUND = 3;
+    private static final int ATTEMPTS = 2;
+
+    private static final GameListener NO_LISTENER = new GameListener() { };
+
+    private final Random random;
+    private GameListener listener = NO_LISTENER;
+    private final int[] sizes = SIZES.clone();
+    private int hearts = HEARTS;
+
+    private Maze maze;
+    private int width;
+    private int height;
+    private byte[] walls = new byte[0]; // Wall bits per tile
+    private byte[] hits = new byte[0]; // Bits of the walls hit per tile
+    private long generationNanos = -1;
+
+    private int playerX, playerY, startX, startY, goalX, goalY;
+    private int heartsA, heartsB;
+    private int difficulty = EASY;
+    private int attempts = 1;
+    private int round = 1;
+    private int games;
+    private int playerAWins, playerBWins;
+    private boolean playerATurn = true;
+    private boolean practiceMode;
+    private boolean movable;
+
+    /** Creates an engine with a random seed. */
+    public GameEngine() {
+        random = new Random();
+    }
+
+    /**
+     * Creates an engine that plays the same games for the same commands.
+     *
+     * @param seed the seed of the mazes and placements
+     */
+    public GameEngine(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Sets the listener of the engine.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(GameListener listener) {
+        this.listener = (listener != null) ? listener : NO_LISTENER;
+    }
+
+    /**
+     * Changes the rules of the games started from now on, to try out how
+     * they play. The large difficulty keeps its size.
+     *
+     * @param  hearts the hearts each player starts a game with
+     * @param  easy the width and height of easy mazes
+     * @param  medium the width and height of medium mazes
+     * @param  hard the width and height of hard mazes
+     * @throws IllegalArgumentException if a value is not positive
+     */
+    public void setRules(int hearts, int easy, int medium, int hard) {
+        if (hearts <= 0 || easy <= 0 || medium <= 0 || hard <= 0) {
+            throw new IllegalArgumentException("Hearts and sizes must be positive");
+        }
+        this.hearts = hearts;
+        sizes[EASY] = easy;
+        sizes[MEDIUM] = medium;
+        sizes[HARD] = hard;
+    }
+
+    /**
+     * Returns the default width and height of the mazes of a difficulty.
+     *
+     * @param  difficulty the difficulty, from {@link #EASY} to {@link #LARGE}
+     * @return the size
+     * @throws IllegalArgumentException if difficulty is unknown
+     */
+    public static int getSize(int difficulty) {
+        if (difficulty < EASY || difficulty > LARGE) {
+            throw new IllegalArgumentException("Unknown difficulty: " + difficulty);
+        }
+        return SIZES[difficulty];
+    }
+
+    /** Starts a 1v1 match with an easy maze. */
+    public void start1v1() {
+        practiceMode = false;
+        difficulty = EASY;
+        startGame(sizes[difficulty], sizes[difficulty]);
+    }
+
+    /**
+     * Starts a practice game.
+     *
+     * @param  difficulty the difficulty, from {@link #EASY} to {@link #LARGE}
+     * @throws IllegalArgumentException if difficulty is unknown
+     */
+    public void startPractice(int difficulty) {
+        if (difficulty < EASY || difficulty > LARGE) {
+            throw new IllegalArgumentException("Unknown difficulty: " + difficulty);
+        }
+        int size = sizes[difficulty];
+        practiceMode = true;
+        this.difficulty = difficulty;
+        startGame(size, size);
+    }
+
+    /**
+     * Starts a game in a new maze. Moves stay disabled until
+     * {@link #setMovable(boolean)} enables them.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public void startGame(int width, int height) {
+        RecursiveBacktracker generated = new RecursiveBacktracker(width, height, random.nextLong());
+        long start = System.nanoTime();
+        generated.generate();
+        start(generated, System.nanoTime() - start);
+    }
+
+    /**
+     * Starts a game in a generated maze. Moves stay disabled until
+     * {@link #setMovable(boolean)} enables them.
+     *
+     * @param  maze the maze
+     * @throws IllegalArgumentException if the maze has more than
+     *         {@code Integer.MAX_VALUE} tiles
+     * @throws NullPointerException if maze is null
+     */
+    public void startGame(Maze maze) {
+        start(maze, -1);
+    }
+
+    /**
+     * Starts a single game with a given placement, such as a game recorded
+     * in a replay. The game is played like practice: when it is over, the
+     * match is reset instead of going on to another maze. Moves stay
+     * disabled until {@link #setMovable(boolean)} enables them.
+     *
+     * @param  maze the maze
+     * @param  startX the x-coordinate of the start
+     * @param  startY the y-coordinate of the start
+     * @param  goalX the x-coordinate of the goal
+     * @param  goalY the y-coordinate of the goal
+     * @param  playerATurn true if player A plays first
+     * @throws IllegalArgumentException if the maze has more than
+     *         {@code Integer.MAX_VALUE} tiles
+     * @throws NullPointerException if maze is null
+     * @throws OutOfBoundsException if the start or the goal is out of bounds
+     */
+    public void startGame(Maze maze, int startX, int startY, int goalX, int goalY, boolean playerATurn) {
+        if (startX < 0 || startX >= maze.getWidth() || startY < 0 || startY >= maze.getHeight()) {
+            throw new OutOfBoundsException("(" + startX + ", " + startY + ")");
+        }
+        if (goalX < 0 || goalX >= maze.getWidth() || goalY < 0 || goalY >= maze.getHeight()) {
+            throw new OutOfBoundsException("(" + goalX + ", " + goalY + ")");
+        }
+        load(maze, -1);
+        practiceMode = true;
+        attempts = 1;
+        this.startX = playerX = startX;
+        this.startY = playerY = startY;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.playerATurn = playerATurn;
+        movable = false;
+        listener.gameStarted();
+    }
+
+    private void start(Maze maze, long generationNanos) {
+        load(maze, generationNanos);
+
+        // Place the player and the goal far apart along the paths of the maze
+        StartGoalPlacer placer = new StartGoalPlacer(new MazeSolver(maze));
+        placer.place(random, GOAL_DISTANCE_PERCENTILE, MIN_DISTANCE_FROM_START);
+        startX = playerX = placer.getStartX();
+        startY = playerY = placer.getStartY();
+        goalX = placer.getGoalX();
+        goalY = placer.getGoalY();
+
+        if (!practiceMode) {
+            changePlayerTurn();
+        }
+        movable = false;
+        listener.gameStarted();
+    }
+
+    /* Takes a snapshot of the walls of a maze and gives both players their hearts. */
+    private void load(Maze maze, long generationNanos) {
+        if (maze.getSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze is too large to be played");
+        }
+        this.maze = maze;
+        width = maze.getWidth();
+        height = maze.getHeight();
+        int tiles = (int) maze.getSize();
+        if (walls.length != tiles) {
+            walls = new byte[tiles];
+            hits = new byte[tiles];
+        } else {
+            Arrays.fill(hits, (byte) 0);
+        }
+        for (int y = 0; y < height; ++y) {
+            maze.readRow(0, y, walls, y * width, width);
+        }
+        this.generationNanos = generationNanos;
+
+        heartsA = heartsB = hearts;
+    }
+
+    /**
+     * Enables or disables moves; disabled moves are ignored.
+     *
+     * @param movable true to enable moves
+     */
+    public void setMovable(boolean movable) {
+        this.movable = movable;
+    }
+
+    /** Returns true if moves are enabled. */
+    public boolean isMovable() {
+        return movable;
+    }
+
+    /**
+     * Moves the player of the turn one tile. A wall in the way costs a heart
+     * instead; a move that would leave the maze does nothing.
+     *
+     * @param  direction the direction
+     * @return {@link #MOVED}, {@link #HIT_WALL}, {@link #BLOCKED} if the move
+     *         would leave the maze, or {@link #IGNORED} if moves are disabled
+     * @throws NullPointerException if direction is null
+     */
+    public int move(Direction direction) {
+        int newX = playerX + direction.dx;
+        int newY = playerY + direction.dy;
+        if (!movable) {
+            return IGNORED;
+        }
+        if (newX < 0 || newX >= width || newY < 0 || newY >= height) {
+            return BLOCKED;
+        }
+
+        int tile = playerY * width + playerX;
+        if ((walls[tile] & direction.mask) == 0) {
+            int oldX = playerX;
+            int oldY = playerY;
+            playerX = newX;
+            playerY = newY;
+            listener.playerMoved(oldX, oldY, newX, newY);
+            checkGameOver();
+            return MOVED;
+        }
+
+        // Hit a wall
+        hits[tile] |= direction.mask;
+        boolean playerA = playerATurn;
+        int heartsLeft = playerA ? --heartsA : --heartsB;
+        listener.wallHit(playerX, playerY, direction, heartsLeft);
+        if (heartsLeft == 0) {
+            if (playerA) {
+                heartsA = hearts;
+            } else {
+                heartsB = hearts;
+            }
+            playerATurn = !playerA;
+            ++attempts;
+            int oldX = playerX;
+            int oldY = playerY;
+            playerX = startX;
+            playerY = startY;
+            listener.heartsLost(playerA, attempts <= ATTEMPTS);
+            listener.playerMoved(oldX, oldY, playerX, playerY);
+        }
+        checkGameOver();
+        return HIT_WALL;
+    }
+
+    /** Sets rounds, games and wins back to the start and disables moves. */
+    public void resetMatch() {
+        round = 1;
+        games = 0;
+        playerAWins = 0;
+        playerBWins = 0;
+        difficulty = EASY;
+        movable = false;
+        listener.matchReset();
+    }
+
+    /** Returns the maze, or null before the first game. */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /** Returns the nanoseconds the maze took to generate, or -1 if it was given. */
+    public long getGenerationNanos() {
+        return generationNanos;
+    }
+
+    /**
+     * Returns true if a wall of a tile has been hit, which reveals the tile.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @return true if the tile is revealed
+     * @throws OutOfBoundsException if the tile is out of bounds
+     */
+    public boolean isRevealed(int x, int y) {
+        return hits[index(x, y)] != 0;
+    }
+
+    /**
+     * Returns true if a wall has been hit.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @param  direction the side of the tile
+     * @return true if the wall has been hit
+     * @throws OutOfBoundsException if the tile is out of bounds
+     */
+    public boolean isHit(int x, int y, Direction direction) {
+        return (hits[index(x, y)] & direction.mask) != 0;
+    }
+
+    /** Returns the x-coordinate of the player. */
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    /** Returns the y-coordinate of the player. */
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    /** Returns the x-coordinate of the start. */
+    public int getStartX() {
+        return startX;
+    }
+
+    /** Returns the y-coordinate of the start. */
+    public int getStartY() {
+        return startY;
+    }
+
+    /** Returns the x-coordinate of the goal. */
+    public int getGoalX() {
+        return goalX;
+    }
+
+    /** Returns the y-coordinate of the goal. */
+    public int getGoalY() {
+        return goalY;
+    }
+
+    /** Returns the hearts of the player of the turn. */
+    public int getHearts() {
+        return playerATurn ? heartsA : heartsB;
+    }
+
+    /** Returns true if it is player A's turn. */
+    public boolean isPlayerATurn() {
+        return playerATurn;
+    }
+
+    /** Returns the round of the match, from 1. */
+    public int getRound() {
+        return round;
+    }
+
+    /** Returns the number of games finished in the match. */
+    public int getGames() {
+        return games;
+    }
+
+    /** Returns the games won by player A. */
+    public int getPlayerAWins() {
+        return playerAWins;
+    }
+
+    /** Returns the games won by player B. */
+    public int getPlayerBWins() {
+        return playerBWins;
+    }
+
+    /** Returns the difficulty of the game. */
+    public int getDifficulty() {
+        return difficulty;
+    }
+
+    /** Returns true if the game is a practice game. */
+    public boolean isPracticeMode() {
+        return practiceMode;
+    }
+
+    private int index(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new OutOfBoundsException("(" + x + ", " + y + ")");
+        }
+        return y * width + x;
+    }
+
+    private void changePlayerTurn() {
+        if (games % 2 == 0) {
+            playerATurn = true;
+        } else if (!(attempts > ATTEMPTS)) {
+            playerATurn = false;
+        } else {
+            playerATurn = !playerATurn;
+        }
+    }
+
+    private void checkGameOver() {
+        if (playerX == goalX && playerY == goalY) {
+            attempts = 1;
+            games++;
+            boolean playerA = playerATurn;
+            if (playerA) {
+                playerAWins++;
+            } else {
+                playerBWins++;
+            }
+            listener.goalReached(playerA);
+            if (playerAWins == GAMES_TO_WIN || playerBWins == GAMES_TO_WIN
+                    || (playerAWins == GAMES_TO_WIN - 1 && playerBWins == GAMES_TO_WIN - 1)) {
+                listener.matchOver(playerAWins, playerBWins, true);
+                resetMatch();
+            } else {
+                startNextRound();
+            }
+        } else if (attempts > ATTEMPTS) {
+            attempts = 1;
+            games++;
+            listener.gameLost();
+            startNextRound();
+        }
+    }
+
+    private void startNextRound() {
+        if (practiceMode) {
+            listener.practiceOver();
+            resetMatch();
+        } else if (games % 2 == 0) {
+            round++;
+            difficulty++;
+            if (round <= LAST_ROUND) {
+                startGame(sizes[round], sizes[round]);
+            } else {
+                listener.matchOver(playerAWins, playerBWins, false);
+                resetMatch();
+            }
+        } else {
+            startGame(sizes[difficulty], sizes[difficulty]);
+        }
+    }
+}
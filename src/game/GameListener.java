@@ -0,0 +1,79 @@
+package game;
+
+import maze.Direction;
+
+/**
+ * Receives the state changes of a {@link GameEngine}. Events carry only
+ * primitives and enums, so firing them allocates nothing; the rest of the
+ * state can be read from the engine, which is up to date when an event is
+ * fired. Every method does nothing by default.
+ */
+public interface GameListener {
+    /** A new game has started; the maze, the start and the goal have changed. */
+    default void gameStarted() {
+    }
+
+    /**
+     * The player moved, or was sent back to the start.
+     *
+     * @param fromX the x-coordinate the player left
+     * @param fromY the y-coordinate the player left
+     * @param toX the x-coordinate the player entered
+     * @param toY the y-coordinate the player entered
+     */
+    default void playerMoved(int fromX, int fromY, int toX, int toY) {
+    }
+
+    /**
+     * The player ran into a wall, which is now revealed.
+     *
+     * @param x the x-coordinate of the tile of the wall
+     * @param y the y-coordinate of the tile of the wall
+     * @param direction the side of the tile the wall is on
+     * @param heartsLeft the hearts the player has left, 0 if all are lost
+     */
+    default void wallHit(int x, int y, Direction direction, int heartsLeft) {
+    }
+
+    /**
+     * A player lost all hearts and was sent back to the start; the other
+     * player has the turn.
+     *
+     * @param playerA true if player A lost the hearts
+     * @param handover true if the other player now tries the same maze,
+     *        false if both have failed and the game is lost
+     */
+    default void heartsLost(boolean playerA, boolean handover) {
+    }
+
+    /**
+     * A player reached the goal and won the game.
+     *
+     * @param playerA true if player A reached the goal
+     */
+    default void goalReached(boolean playerA) {
+    }
+
+    /** Both players lost all hearts in the same maze. */
+    default void gameLost() {
+    }
+
+    /**
+     * A 1v1 match is over. The match is reset right after this event.
+     *
+     * @param playerAWins the games won by player A
+     * @param playerBWins the games won by player B
+     * @param early true if the match ended before the last round, on four
+     *        wins or a three to three draw
+     */
+    default void matchOver(int playerAWins, int playerBWins, boolean early) {
+    }
+
+    /** A practice game is over. The match is reset right after this event. */
+    default void practiceOver() {
+    }
+
+    /** Rounds, games and wins are back at the start; moves are disabled. */
+    default void matchReset() {
+    }
+}
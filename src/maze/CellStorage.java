@@ -0,0 +1,436 @@
+package maze;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Backing store for the nodes of a {@link Maze}. Every node is an 8-bit value
+ * whose low four bits are the walls and whose high four bits are the flags used
+ * during generation. Implementations may drop the flag bits to save memory.
+ * Nodes are addressed with long indices, so storages outside the Java heap can
+ * hold more than 2<sup>31</sup> nodes.
+ * <p>
+ * Memory per node:
+ * <ul>
+ * <li>byte storage: 1 byte (8 bits), walls and flags, on the heap</li>
+ * <li>packed storage: 0.5 bytes (4 bits), walls only, on the heap</li>
+ * <li>direct and mapped storage: 1 byte (8 bits), walls and flags, off the
+ * heap</li>
+ * </ul>
+ */
+public abstract class CellStorage implements Serializable {
+    private static final long serialVersionUID = 3310436412357728806L;
+
+    static final int WALL_MASK = 0xf;
+
+    /* Largest byte array the virtual machine reliably allocates. */
+    static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    CellStorage() {
+    }
+
+    /**
+     * Creates a storage outside the Java heap. The storage is not subject to
+     * array size limits and does not add to garbage collection pressure.
+     *
+     * @param  size the number of nodes
+     * @return the storage
+     * @throws IllegalArgumentException if size is not positive
+     */
+    public static CellStorage direct(long size) {
+        return new DirectStorage(size);
+    }
+
+    /**
+     * Creates a storage that is a memory-mapped file. The file is created if
+     * it does not exist and is extended to hold the nodes. An existing maze in
+     * the file is kept, so a maze written through this storage can be opened
+     * again without reading it into memory.
+     *
+     * @param  file the file
+     * @param  size the number of nodes
+     * @return the storage
+     * @throws IllegalArgumentException if size is not positive
+     * @throws IOException if the file cannot be opened or mapped
+     * @throws NullPointerException if file is null
+     */
+    public static CellStorage mapped(Path file, long size) throws IOException {
+        checkSize(size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer[] chunks = new ByteBuffer[DirectStorage.chunkCount(size)];
+            for (int c = 0; c < chunks.length; ++c) {
+                long position = (long) c << DirectStorage.CHUNK_SHIFT;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                        DirectStorage.chunkSize(size, c));
+            }
+            return new DirectStorage(size, chunks);
+        }
+    }
+
+    /** Creates the default storage for a maze of the specified size. */
+    static CellStorage heap(long size) {
+        checkSize(size);
+        if (size > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("Maze of " + size
+                    + " nodes is too large for the heap; use an off-heap storage");
+        }
+        return new ByteStorage((int) size);
+    }
+
+    private static void checkSize(long size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+    }
+
+    /** Returns the number of nodes. */
+    public abstract long size();
+
+    /** Returns the number of bytes used by the nodes. */
+    public abstract long byteSize();
+
+    /**
+     * Writes changes to a memory-mapped storage back to its file. Does
+     * nothing for other storages.
+     */
+    public void force() {
+    }
+
+    /** Returns true if the flag bits are stored. */
+    abstract boolean hasFlags();
+
+    /** Returns true if the storage is on the Java heap. */
+    abstract boolean isHeap();
+
+    /** Returns the value of a node, masked to 8 bits. */
+    abstract int get(long i);
+
+    /** Sets the value of a node. */
+    abstract void set(long i, int value);
+
+    /** Sets the value of every node. */
+    abstract void fill(int value);
+
+    /** Copies the wall bits of consecutive nodes into an array. */
+    void readWalls(long from, byte[] dst, int off, int len) {
+        for (int j = 0; j < len; ++j) {
+            dst[off + j] = (byte) (get(from + j) & WALL_MASK);
+        }
+    }
+
+    /** Sets bits of a node. */
+    void or(long i, int bits) {
+        set(i, get(i) | bits);
+    }
+
+    /** Clears bits of a node. */
+    void clear(long i, int bits) {
+        set(i, get(i) & ~bits);
+    }
+
+    /** Returns a copy of the walls of this storage in byte storage. */
+    CellStorage toBytes() {
+        CellStorage copy = heap(size());
+        for (long i = 0; i < size(); ++i) {
+            copy.set(i, get(i));
+        }
+        return copy;
+    }
+
+    /** Returns a copy of the walls of this storage in packed storage. */
+    CellStorage toPacked() {
+        if (size() > 2 * MAX_ARRAY_SIZE) {
+            throw new IllegalStateException("Maze is too large to be packed on the heap");
+        }
+        PackedStorage copy = new PackedStorage(size());
+        for (long i = 0; i < size(); ++i) {
+            copy.set(i, get(i));
+        }
+        return copy;
+    }
+
+    /** Stores each node in a byte. */
+    static final class ByteStorage extends CellStorage {
+        private static final long serialVersionUID = -8072719722934612391L;
+
+        private final byte[] b;
+
+        ByteStorage(int size) {
+            b = new byte[size];
+        }
+
+        @Override
+        public long size() {
+            return b.length;
+        }
+
+        @Override
+        public long byteSize() {
+            return b.length;
+        }
+
+        @Override
+        boolean hasFlags() {
+            return true;
+        }
+
+        @Override
+        boolean isHeap() {
+            return true;
+        }
+
+        @Override
+        int get(long i) {
+            return b[(int) i] & 0xff;
+        }
+
+        @Override
+        void set(long i, int value) {
+            b[(int) i] = (byte) value;
+        }
+
+        @Override
+        void fill(int value) {
+            Arrays.fill(b, (byte) value);
+        }
+
+        @Override
+        void readWalls(long from, byte[] dst, int off, int len) {
+            int start = (int) from;
+            for (int j = 0; j < len; ++j) {
+                dst[off + j] = (byte) (b[start + j] & WALL_MASK);
+            }
+        }
+
+        @Override
+        void or(long i, int bits) {
+            b[(int) i] |= bits;
+        }
+
+        @Override
+        void clear(long i, int bits) {
+            b[(int) i] &= ~bits;
+        }
+
+        @Override
+        CellStorage toBytes() {
+            ByteStorage copy = new ByteStorage(b.length);
+            System.arraycopy(b, 0, copy.b, 0, b.length);
+            return copy;
+        }
+    }
+
+    /**
+     * Packs the walls of two nodes into a byte. The node with the even index
+     * is kept in the low nibble. Flag bits are discarded.
+     */
+    static final class PackedStorage extends CellStorage {
+        private static final long serialVersionUID = 1502871541420718203L;
+
+        private final byte[] b;
+        private final long size;
+
+        PackedStorage(long size) {
+            this.size = size;
+            b = new byte[(int) ((size + 1) >>> 1)];
+        }
+
+        /** Returns the packed nodes; two per byte, even index in the low nibble. */
+        byte[] bytes() {
+            return b;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long byteSize() {
+            return b.length;
+        }
+
+        @Override
+        boolean hasFlags() {
+            return false;
+        }
+
+        @Override
+        boolean isHeap() {
+            return true;
+        }
+
+        @Override
+        int get(long i) {
+            return (b[(int) (i >>> 1)] >>> ((i & 1) << 2)) & WALL_MASK;
+        }
+
+        @Override
+        void set(long i, int value) {
+            int shift = (int) (i & 1) << 2;
+            int j = (int) (i >>> 1);
+            b[j] = (byte) ((b[j] & ~(WALL_MASK << shift)) | ((value & WALL_MASK) << shift));
+        }
+
+        @Override
+        void fill(int value) {
+            int nibble = value & WALL_MASK;
+            Arrays.fill(b, (byte) (nibble | (nibble << 4)));
+        }
+
+        @Override
+        void or(long i, int bits) {
+            b[(int) (i >>> 1)] |= (bits & WALL_MASK) << ((i & 1) << 2);
+        }
+
+        @Override
+        void clear(long i, int bits) {
+            b[(int) (i >>> 1)] &= ~((bits & WALL_MASK) << ((i & 1) << 2));
+        }
+    }
+
+    /**
+     * Stores each node in a byte of direct or memory-mapped buffers. A single
+     * buffer is limited to 2<sup>31</sup> bytes, so the nodes are split into
+     * chunks of 2<sup>30</sup> nodes.
+     */
+    static final class DirectStorage extends CellStorage {
+        private static final long serialVersionUID = -2309526019657924436L;
+
+        static final int CHUNK_SHIFT = 30;
+        private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+        private final long size;
+        private transient ByteBuffer[] chunks;
+
+        DirectStorage(long size) {
+            checkSize(size);
+            this.size = size;
+            allocate();
+        }
+
+        DirectStorage(long size, ByteBuffer[] chunks) {
+            this.size = size;
+            this.chunks = chunks;
+        }
+
+        static int chunkCount(long size) {
+            return (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        }
+
+        static int chunkSize(long size, int chunk) {
+            return (int) Math.min(1L << CHUNK_SHIFT, size - ((long) chunk << CHUNK_SHIFT));
+        }
+
+        private void allocate() {
+            chunks = new ByteBuffer[chunkCount(size)];
+            for (int c = 0; c < chunks.length; ++c) {
+                chunks[c] = ByteBuffer.allocateDirect(chunkSize(size, c));
+            }
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long byteSize() {
+            return size;
+        }
+
+        @Override
+        public void force() {
+            for (ByteBuffer chunk : chunks) {
+                if (chunk instanceof MappedByteBuffer) {
+                    ((MappedByteBuffer) chunk).force();
+                }
+            }
+        }
+
+        @Override
+        boolean hasFlags() {
+            return true;
+        }
+
+        @Override
+        boolean isHeap() {
+            return false;
+        }
+
+        @Override
+        int get(long i) {
+            return chunks[(int) (i >>> CHUNK_SHIFT)].get((int) (i & CHUNK_MASK)) & 0xff;
+        }
+
+        @Override
+        void set(long i, int value) {
+            chunks[(int) (i >>> CHUNK_SHIFT)].put((int) (i & CHUNK_MASK), (byte) value);
+        }
+
+        @Override
+        void fill(int value) {
+            byte[] block = new byte[8192];
+            Arrays.fill(block, (byte) value);
+            for (ByteBuffer chunk : chunks) {
+                int capacity = chunk.capacity();
+                for (int i = 0; i < capacity; i += block.length) {
+                    chunk.put(i, block, 0, Math.min(block.length, capacity - i));
+                }
+            }
+        }
+
+        @Override
+        void readWalls(long from, byte[] dst, int off, int len) {
+            int done = 0;
+            while (done < len) {
+                long i = from + done;
+                ByteBuffer chunk = chunks[(int) (i >>> CHUNK_SHIFT)];
+                int position = (int) (i & CHUNK_MASK);
+                int length = Math.min(len - done, chunk.capacity() - position);
+                chunk.get(position, dst, off + done, length);
+                done += length;
+            }
+            for (int j = off; j < off + len; ++j) {
+                dst[j] &= WALL_MASK;
+            }
+        }
+
+        /* Streams the nodes; deserialized storages are direct, not mapped. */
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            byte[] block = new byte[8192];
+            for (ByteBuffer chunk : chunks) {
+                int capacity = chunk.capacity();
+                for (int i = 0; i < capacity; i += block.length) {
+                    int length = Math.min(block.length, capacity - i);
+                    chunk.get(i, block, 0, length);
+                    out.write(block, 0, length);
+                }
+            }
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            allocate();
+            byte[] block = new byte[8192];
+            for (ByteBuffer chunk : chunks) {
+                int capacity = chunk.capacity();
+                for (int i = 0; i < capacity; i += block.length) {
+                    int length = Math.min(block.length, capacity - i);
+                    in.readFully(block, 0, length);
+                    chunk.put(i, block, 0, length);
+                }
+            }
+        }
+    }
+}
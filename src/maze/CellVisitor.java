@@ -0,0 +1,15 @@
+package maze;
+
+/** Receives the walls of the nodes of a {@link Maze} during a bulk scan. */
+@FunctionalInterface
+public interface CellVisitor {
+    /**
+     * Visits a node.
+     *
+     * @param x the x-coordinate of the node
+     * @param y the y-coordinate of the node
+     * @param walls the wall bits of the node, which can be tested against
+     *        {@link Direction#mask}
+     */
+    void visit(int x, int y, int walls);
+}
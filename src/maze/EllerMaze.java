@@ -0,0 +1,138 @@
+package maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Implements Eller's algorithm. The maze is generated one row at a time from
+ * an {@link EllerRows} stream, which keeps only O(width) state, and can be
+ * generated incrementally with {@link #generateRows(int)}. Rows that have been
+ * generated are final.
+ */
+public class EllerMaze extends RandomizedMaze {
+    private static final long serialVersionUID = 4482730934532407514L;
+
+    private transient EllerRows rows;
+    private transient byte[] row;
+
+    /**
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public EllerMaze(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public EllerMaze(int width, int height, long seed) {
+        super(width, height, seed);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public EllerMaze(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the storage of its nodes, and seeds
+     * it using the default algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  storage the storage of the nodes
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the size of the storage is not width * height
+     * @throws NullPointerException if storage is null
+     */
+    public EllerMaze(int width, int height, long seed, CellStorage storage) {
+        super(width, height, seed, DEFAULT_ALGORITHM, storage);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public EllerMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+    }
+
+    EllerMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+    }
+
+    EllerMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+    }
+
+    @Override
+    public void generate() {
+        restart();
+        generateRows(getHeight());
+    }
+
+    /**
+     * Walls off every node and starts a new generation. Rows are then added
+     * with {@link #generateRows(int)}.
+     */
+    public void restart() {
+        fill();
+        rows = new EllerRows(getWidth(), getHeight(), newGenerationRandom());
+        row = new byte[getWidth()];
+    }
+
+    /**
+     * Generates the next rows of the maze, starting a new generation if none
+     * has been started.
+     *
+     * @param  count the maximum number of rows to generate
+     * @return the number of rows generated
+     */
+    public int generateRows(int count) {
+        if (rows == null) {
+            restart();
+        }
+        int generated = 0;
+        while (generated < count && rows.hasNext()) {
+            int y = (int) rows.getRow();
+            rows.next(row, 0);
+            writeRow(y, row, 0);
+            ++generated;
+        }
+        if (generated > 0 && !rows.hasNext()) {
+            markGenerated();
+        }
+        return generated;
+    }
+
+    /** Returns the number of rows generated so far. */
+    public int getGeneratedRows() {
+        return rows == null ? 0 : (int) rows.getRow();
+    }
+}
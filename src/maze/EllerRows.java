@@ -0,0 +1,234 @@
+package maze;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+/**
+ * Streams a maze one row at a time using Eller's algorithm. Only O(width)
+ * state is kept, so mazes of unbounded height can be generated in constant
+ * memory, and each row is final as soon as it is returned.
+ * <p>
+ * A row is returned as an array of wall bits, one byte per node, which can be
+ * tested against {@link Direction#mask}. The walls of adjacent nodes agree,
+ * both within a row and between consecutive rows. If the height is bounded,
+ * the last row joins every remaining set, so the rows form a perfect maze.
+ */
+public class EllerRows implements Iterator<byte[]> {
+    /** The height of a maze that never ends. */
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private final int width;
+    private final long height;
+    private final RandomGenerator rnd;
+    private long row;
+
+    /* Random bits drawn 64 at a time; the top set bit marks the end. */
+    private long bits = 1;
+
+    /* Set of each node in the current row; -1 for a node without a set. */
+    private final int[] sets;
+    /* Union-find forest over the set numbers of the current row. */
+    private final int[] parent;
+    /* Per set scratch: last node of the set and whether it opened south. */
+    private final int[] last;
+    private final boolean[] opened;
+    private final int[] renumber;
+    /* Whether each node of the previous row opened south. */
+    private final boolean[] southOpen;
+
+    /**
+     * Creates a stream of rows for a maze that never ends.
+     *
+     * @param  width the width of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public EllerRows(int width, RandomGenerator rnd) {
+        this(width, UNBOUNDED, rnd);
+    }
+
+    /**
+     * Creates a stream of rows for a maze of the specified height.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze, or {@link #UNBOUNDED}
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public EllerRows(int width, long height, RandomGenerator rnd) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
+        if (rnd == null) {
+            throw new NullPointerException();
+        }
+        this.width = width;
+        this.height = height;
+        this.rnd = rnd;
+        sets = new int[width];
+        parent = new int[width];
+        last = new int[width];
+        opened = new boolean[width];
+        renumber = new int[width];
+        southOpen = new boolean[width];
+    }
+
+    /** Returns the width of the maze. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of the maze, or {@link #UNBOUNDED}. */
+    public long getHeight() {
+        return height;
+    }
+
+    /** Returns the y-coordinate of the next row. */
+    public long getRow() {
+        return row;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return row < height;
+    }
+
+    /**
+     * Returns the wall bits of the next row in a new array.
+     *
+     * @throws NoSuchElementException if there are no more rows
+     */
+    @Override
+    public byte[] next() {
+        byte[] walls = new byte[width];
+        next(walls, 0);
+        return walls;
+    }
+
+    /**
+     * Generates the next row into an array, one byte per node.
+     *
+     * @param  dst the array to write into
+     * @param  off the index in dst of the first node of the row
+     * @throws NoSuchElementException if there are no more rows
+     * @throws IndexOutOfBoundsException if dst cannot hold the row at off
+     * @throws NullPointerException if dst is null
+     */
+    public void next(byte[] dst, int off) {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Objects.checkFromIndexSize(off, width, dst.length);
+        boolean lastRow = (row == height - 1);
+
+        /* Nodes that were not joined from above start sets of their own. */
+        int free = 0;
+        for (int x = 0; x < width; ++x) {
+            if (row == 0 || !southOpen[x]) {
+                sets[x] = -1;
+            }
+        }
+        for (int s = 0; s < width; ++s) {
+            parent[s] = s;
+            renumber[s] = -1;
+        }
+        for (int x = 0; x < width; ++x) {
+            if (sets[x] >= 0) {
+                renumber[sets[x]] = 0;
+            }
+        }
+        for (int x = 0; x < width; ++x) {
+            if (sets[x] < 0) {
+                while (renumber[free] == 0) {
+                    ++free;
+                }
+                sets[x] = free++;
+            }
+        }
+
+        /* Joins adjacent nodes of different sets; the last row joins all. */
+        for (int x = 0; x < width; ++x) {
+            int walls = Direction.SOUTH.mask;
+            if (row == 0 || !southOpen[x]) {
+                walls |= Direction.NORTH.mask;
+            }
+            if (x == 0 || (dst[off + x - 1] & Direction.EAST.mask) != 0) {
+                walls |= Direction.WEST.mask;
+            }
+            if (x == width - 1) {
+                walls |= Direction.EAST.mask;
+            } else {
+                int a = find(sets[x]);
+                int b = find(sets[x + 1]);
+                if (a != b && (lastRow || randomBit())) {
+                    parent[a] = b;
+                } else {
+                    walls |= Direction.EAST.mask;
+                }
+            }
+            dst[off + x] = (byte) walls;
+        }
+
+        if (lastRow) {
+            ++row;
+            return;
+        }
+
+        /* Opens at least one node of every set to the row below. */
+        for (int x = 0; x < width; ++x) {
+            int s = find(sets[x]);
+            sets[x] = s;
+            last[s] = x;
+            opened[s] = false;
+        }
+        for (int x = 0; x < width; ++x) {
+            int s = sets[x];
+            boolean open = randomBit() || (last[s] == x && !opened[s]);
+            southOpen[x] = open;
+            if (open) {
+                opened[s] = true;
+                dst[off + x] &= ~Direction.SOUTH.mask;
+            }
+        }
+
+        /* Renumbers the carried sets densely so they fit in the next row. */
+        for (int s = 0; s < width; ++s) {
+            renumber[s] = -1;
+        }
+        int next = 0;
+        for (int x = 0; x < width; ++x) {
+            if (southOpen[x]) {
+                int s = sets[x];
+                if (renumber[s] < 0) {
+                    renumber[s] = next++;
+                }
+                sets[x] = renumber[s];
+            }
+        }
+        ++row;
+    }
+
+    private boolean randomBit() {
+        if (bits == 1) {
+            long r = rnd.nextLong();
+            boolean bit = (r & 1) != 0;
+            bits = (r >>> 1) | Long.MIN_VALUE;
+            return bit;
+        }
+        boolean bit = (bits & 1) != 0;
+        bits >>>= 1;
+        return bit;
+    }
+
+    private int find(int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+}
@@ -0,0 +1,193 @@
+package maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Implements the growing tree algorithm. A list of active nodes is kept in an
+ * int array in the order the nodes were added; in each step a node is chosen
+ * from the list and connected to a random unvisited neighbour, or removed from
+ * the list if it has none. Choosing the newest node gives long winding
+ * corridors like recursive backtracking, choosing a random node gives short
+ * dead ends like Prim's algorithm, and the
+ * {@link #setNewestBias(double) newest bias} blends the two.
+ */
+public class GrowingTreeMaze extends RandomizedMaze {
+    private static final long serialVersionUID = -2186694712350512311L;
+
+    /** The default probability of choosing the newest active node. */
+    public static final double DEFAULT_NEWEST_BIAS = 0.5;
+
+    /* Marks a removed node in the active list. */
+    private static final int RETIRED = -1;
+
+    private double newestBias = DEFAULT_NEWEST_BIAS;
+
+    /**
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public GrowingTreeMaze(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public GrowingTreeMaze(int width, int height, long seed) {
+        super(width, height, seed);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public GrowingTreeMaze(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public GrowingTreeMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+    }
+
+    GrowingTreeMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+    }
+
+    GrowingTreeMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+    }
+
+    /** Returns the probability of choosing the newest active node. */
+    public double getNewestBias() {
+        return newestBias;
+    }
+
+    /**
+     * Sets the probability of choosing the newest active node rather than a
+     * random one. A maze generated with a bias other than
+     * {@link #DEFAULT_NEWEST_BIAS} is not
+     * {@link RandomizedMaze#isReproducible() reproducible} from its seed alone.
+     *
+     * @param  newestBias the probability, from 0 to 1
+     * @throws IllegalArgumentException if newestBias is not between 0 and 1
+     */
+    public void setNewestBias(double newestBias) {
+        if (!(newestBias >= 0 && newestBias <= 1)) {
+            throw new IllegalArgumentException("Bias must be between 0 and 1");
+        }
+        this.newestBias = newestBias;
+    }
+
+    @Override
+    protected boolean hasDefaultSettings() {
+        return newestBias == DEFAULT_NEWEST_BIAS;
+    }
+
+    @Override
+    public void generate() {
+        RandomGenerator rnd = newGenerationRandom();
+        int width = getWidth();
+        int height = getHeight();
+        int nodes = checkedSize();
+        Direction[] moves = new Direction[4];
+        fill();
+
+        /* Removed nodes are marked rather than shifted out, which keeps the
+         * order in constant time; the last entry is always a node. */
+        int[] active = new int[nodes];
+        int activeCount = 0;
+        int retiredCount = 0;
+        active[activeCount++] = rnd.nextInt(nodes);
+
+        while (activeCount > 0) {
+            int k;
+            if (newestBias >= 1 || rnd.nextDouble() < newestBias) {
+                k = activeCount - 1;
+            } else {
+                do {
+                    k = rnd.nextInt(activeCount);
+                } while (active[k] == RETIRED);
+            }
+            int i = active[k];
+            int x = i % width;
+            int y = i / width;
+
+            /* Finds adjacent unvisited nodes. */
+            int moveCount = 0;
+            if (y > 0 && isUnvisited(x, y - 1)) {
+                moves[moveCount++] = Direction.NORTH;
+            }
+            if (x < width - 1 && isUnvisited(x + 1, y)) {
+                moves[moveCount++] = Direction.EAST;
+            }
+            if (y < height - 1 && isUnvisited(x, y + 1)) {
+                moves[moveCount++] = Direction.SOUTH;
+            }
+            if (x > 0 && isUnvisited(x - 1, y)) {
+                moves[moveCount++] = Direction.WEST;
+            }
+
+            /* Retires the node if it has no such neighbours. A purely random
+             * choice does not need the order, so the last node fills the gap. */
+            if (moveCount == 0) {
+                if (newestBias == 0) {
+                    active[k] = active[--activeCount];
+                    continue;
+                }
+                active[k] = RETIRED;
+                ++retiredCount;
+                while (activeCount > 0 && active[activeCount - 1] == RETIRED) {
+                    --activeCount;
+                    --retiredCount;
+                }
+                if (retiredCount > activeCount / 2) {
+                    activeCount = compact(active, activeCount);
+                    retiredCount = 0;
+                }
+                continue;
+            }
+
+            Direction d = moves[rnd.nextInt(moveCount)];
+            carveWall(x, y, d);
+            active[activeCount++] = (y + d.dy) * width + x + d.dx;
+        }
+        markGenerated();
+    }
+
+    /** Drops the retired entries of the active list, keeping the order; returns the new count. */
+    private static int compact(int[] active, int activeCount) {
+        int count = 0;
+        for (int j = 0; j < activeCount; ++j) {
+            if (active[j] != RETIRED) {
+                active[count++] = active[j];
+            }
+        }
+        return count;
+    }
+}
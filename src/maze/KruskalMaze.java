@@ -0,0 +1,129 @@
+package maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Implements randomized Kruskal's algorithm. Every interior wall is visited in
+ * random order and removed if the nodes on either side are not yet connected,
+ * which is decided by an int array union-find with path halving. The resulting
+ * mazes have many short dead ends.
+ */
+public class KruskalMaze extends RandomizedMaze {
+    private static final long serialVersionUID = -6719315263419377816L;
+
+    /**
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public KruskalMaze(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public KruskalMaze(int width, int height, long seed) {
+        super(width, height, seed);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public KruskalMaze(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public KruskalMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+    }
+
+    KruskalMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+    }
+
+    KruskalMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+    }
+
+    @Override
+    public void generate() {
+        RandomGenerator rnd = newGenerationRandom();
+        int width = getWidth();
+        int nodes = checkedSize();
+        if (nodes > Integer.MAX_VALUE / 2) {
+            throw new IllegalStateException("Maze is too large for Kruskal's algorithm");
+        }
+        fill();
+
+        /* Wall 2i is the east wall of node i, wall 2i + 1 its south wall. */
+        int[] walls = new int[2 * nodes];
+        int wallCount = 0;
+        for (int i = 0; i < nodes; ++i) {
+            if (i % width < width - 1) {
+                walls[wallCount++] = 2 * i;
+            }
+            if (i < nodes - width) {
+                walls[wallCount++] = 2 * i + 1;
+            }
+        }
+
+        int[] parent = new int[nodes];
+        for (int i = 0; i < nodes; ++i) {
+            parent[i] = i;
+        }
+
+        int joins = nodes - 1;
+        for (int k = wallCount - 1; k >= 0 && joins > 0; --k) {
+            /* Draws the walls in random order with a partial Fisher-Yates shuffle. */
+            int j = rnd.nextInt(k + 1);
+            int wall = walls[j];
+            walls[j] = walls[k];
+
+            int i = wall >>> 1;
+            boolean south = (wall & 1) != 0;
+            int a = find(parent, i);
+            int b = find(parent, south ? i + width : i + 1);
+            if (a != b) {
+                parent[a] = b;
+                carveWall(i % width, i / width, south ? Direction.SOUTH : Direction.EAST);
+                --joins;
+            }
+        }
+        markGenerated();
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
@@ -0,0 +1,19 @@
+package maze;
+
+/**
+ * A maze read from a file that does not know the algorithm it was generated
+ * with, so it cannot be generated again.
+ */
+class LoadedMaze extends Maze {
+    private static final long serialVersionUID = -4211337106993164915L;
+
+    LoadedMaze(int width, int height, CellStorage storage) {
+        super(width, height, storage);
+    }
+
+    /** @throws UnsupportedOperationException always */
+    @Override
+    public void generate() {
+        throw new UnsupportedOperationException("Maze was loaded without its generator");
+    }
+}
@@ -1,7 +1,10 @@
 package maze;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.Arrays;
+import java.util.Objects;
 
 import coords.Point;
 import controller.OutOfBoundsException;
@@ -11,30 +14,72 @@ import controller.OutOfBoundsException;
  * four bit fields. Each node is given a byte, leaving four unused bits per
  * node. These unused bits are made accessible to subclasses since they can be
  * useful when implementing maze generation algorithms that need to label nodes.
+ * <p>
+ * A finished maze can be {@link #compact() compacted}, which packs the walls of
+ * two nodes into a byte and discards the flag bits. This halves the memory per
+ * node from 1 byte to 0.5 bytes.
+ * <p>
+ * Nodes are addressed with long indices. Mazes with more than 2<sup>31</sup>
+ * nodes, or mazes that should not be on the Java heap, can be given a
+ * {@link CellStorage#direct(long) direct} or
+ * {@link CellStorage#mapped(java.nio.file.Path, long) memory-mapped} storage.
+ * <p>
+ * Full-grid scans should use the bulk methods {@link #readRow},
+ * {@link #forEachCell} or {@link #getWalls}, which check bounds once per row,
+ * scan or node instead of once per wall.
  */
 public abstract class Maze implements Serializable {
-    private static final long serialVersionUID = 6114059191423368387L;
+    /* Changed when the byte array became a CellStorage; older streams are rejected. */
+    private static final long serialVersionUID = -1994748075902939233L;
 
-    private static final int WALL_MASK = 0xf;
+    private static final int WALL_MASK = CellStorage.WALL_MASK;
 
-    private final byte[] b;
+    private CellStorage cells;
     private final int width;
     private final int height;
 
+    /* Changes whenever walls change, so derived views can tell they are stale. */
+    private transient int modCount;
+
     /**
      * Sets the dimensions of the maze.
      *
      * @param  width  the width of the maze
      * @param  height the height of the maze
-     * @throws IllegalArgumentException if width or height is not positive
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the maze is too large for the heap
      */
     protected Maze(int width, int height) {
-        if (width <= 0 || height <= 0) {
-            throw new IllegalArgumentException("Width and height must be positive");
+        checkDimensions(width, height);
+        this.width = width;
+        this.height = height;
+        cells = CellStorage.heap((long) width * height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the storage of its nodes.
+     *
+     * @param  width  the width of the maze
+     * @param  height the height of the maze
+     * @param  storage the storage of the nodes
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the size of the storage is not width * height
+     * @throws NullPointerException if storage is null
+     */
+    protected Maze(int width, int height, CellStorage storage) {
+        checkDimensions(width, height);
+        if (storage.size() != (long) width * height) {
+            throw new IllegalArgumentException("Storage size must be width * height");
         }
         this.width = width;
         this.height = height;
-        b = new byte[width * height];
+        cells = storage;
+    }
+
+    private static void checkDimensions(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
     }
 
     /** Generates the maze. */
@@ -50,6 +95,11 @@ public abstract class Maze implements Serializable {
         return height;
     }
 
+    /** Returns the number of nodes in the maze. */
+    public long getSize() {
+        return (long) width * height;
+    }
+
     /**
      * Checks for the presence of a wall at a node.
      *
@@ -62,7 +112,113 @@ public abstract class Maze implements Serializable {
      */
     public boolean isWall(int x, int y, Direction d) {
         checkBounds(x, y);
-        return (b[y * width + x] & d.mask) != 0;
+        return (cells.get(index(x, y)) & d.mask) != 0;
+    }
+
+    /**
+     * Returns the wall bits of a node, which can be tested against
+     * {@link Direction#mask}.
+     *
+     * @param  x the x-coordinate of the node
+     * @param  y the y-coordinate of the node
+     * @return the wall bits of the node
+     * @throws OutOfBoundsException if (x, y) is out of bounds
+     */
+    public int getWalls(int x, int y) {
+        checkBounds(x, y);
+        return walls(x, y);
+    }
+
+    /**
+     * Copies the wall bits of a row of nodes into an array, one byte per
+     * node.
+     *
+     * @param  y the y-coordinate of the row
+     * @param  dst the array to copy into
+     * @param  off the index in dst of the first node of the row
+     * @throws OutOfBoundsException if y is out of bounds
+     * @throws IndexOutOfBoundsException if dst cannot hold the row at off
+     * @throws NullPointerException if dst is null
+     */
+    public void readRow(int y, byte[] dst, int off) {
+        checkBounds(0, y);
+        Objects.checkFromIndexSize(off, width, dst.length);
+        cells.readWalls(index(0, y), dst, off, width);
+    }
+
+    /**
+     * Copies the wall bits of a run of nodes in a row into an array, one byte
+     * per node.
+     *
+     * @param  x the x-coordinate of the first node
+     * @param  y the y-coordinate of the row
+     * @param  dst the array to copy into
+     * @param  off the index in dst of the first node
+     * @param  len the number of nodes
+     * @throws OutOfBoundsException if (x, y) is out of bounds
+     * @throws IndexOutOfBoundsException if the run does not fit in the row or
+     *         dst cannot hold it at off
+     * @throws NullPointerException if dst is null
+     */
+    public void readRow(int x, int y, byte[] dst, int off, int len) {
+        checkBounds(x, y);
+        Objects.checkFromIndexSize(x, len, width);
+        Objects.checkFromIndexSize(off, len, dst.length);
+        cells.readWalls(index(x, y), dst, off, len);
+    }
+
+    /**
+     * Visits every node of the maze in row-major order.
+     *
+     * @param  visitor the visitor
+     * @throws NullPointerException if visitor is null
+     */
+    public void forEachCell(CellVisitor visitor) {
+        byte[] row = new byte[width];
+        for (int y = 0; y < height; ++y) {
+            cells.readWalls(index(0, y), row, 0, width);
+            for (int x = 0; x < width; ++x) {
+                visitor.visit(x, y, row[x]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the walls of a row of nodes and clears their flags. The walls
+     * of neighbouring nodes are not updated, so the walls must agree with the
+     * rows above and below.
+     *
+     * @param  y the y-coordinate of the row
+     * @param  src the wall bits of the row, one byte per node
+     * @param  off the index in src of the first node of the row
+     * @throws OutOfBoundsException if y is out of bounds
+     * @throws IndexOutOfBoundsException if src does not hold a row at off
+     * @throws NullPointerException if src is null
+     */
+    protected void writeRow(int y, byte[] src, int off) {
+        checkBounds(0, y);
+        Objects.checkFromIndexSize(off, width, src.length);
+        long i = index(0, y);
+        for (int x = 0; x < width; ++x) {
+            cells.set(i + x, src[off + x] & WALL_MASK);
+        }
+        ++modCount;
+    }
+
+    /**
+     * Returns a count that changes whenever walls are added or removed.
+     * Generating the maze changes it when the walls are first filled and
+     * again when generation ends, not for every wall carved in between.
+     * Views derived from the walls can compare it with the count they were
+     * built at to tell whether they are stale.
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /** Returns the wall bits of a node without checking bounds. */
+    final int walls(int x, int y) {
+        return cells.get(index(x, y)) & WALL_MASK;
     }
 
     /**
@@ -89,11 +245,12 @@ public abstract class Maze implements Serializable {
      */
     public void addWall(int x, int y, Direction d) {
         checkBounds(x, y);
-        b[y * width + x] |= d.mask;
+        ++modCount;
+        cells.or(index(x, y), d.mask);
         int tx = x + d.dx;
         int ty = y + d.dy;
         if (isInBounds(tx, ty)) {
-            b[ty * width + tx] |= d.getReverse().mask;
+            cells.or(index(tx, ty), d.getReverse().mask);
         }
     }
 
@@ -111,19 +268,21 @@ public abstract class Maze implements Serializable {
 
     /** Puts walls on the border. */
     public void addBorder() {
+        ++modCount;
         for (int y = 0; y < height; ++y) {
-            b[y * width] |= Direction.WEST.mask;
-            b[(y + 1) * width - 1] |= Direction.EAST.mask;
+            cells.or(index(0, y), Direction.WEST.mask);
+            cells.or(index(width - 1, y), Direction.EAST.mask);
         }
         for (int x = 0; x < width; ++x) {
-            b[x] |= Direction.NORTH.mask;
-            b[(height - 1) * width + x] |= Direction.SOUTH.mask;
+            cells.or(index(x, 0), Direction.NORTH.mask);
+            cells.or(index(x, height - 1), Direction.SOUTH.mask);
         }
     }
 
     /** Puts walls everywhere. */
     public void fill() {
-        Arrays.fill(b, (byte) WALL_MASK);
+        ++modCount;
+        cells.fill(WALL_MASK);
     }
 
     /**
@@ -136,15 +295,30 @@ public abstract class Maze implements Serializable {
      * @throws NullPointerException if d is null
      */
     public void removeWall(int x, int y, Direction d) {
+        carveWall(x, y, d);
+        ++modCount;
+    }
+
+    /**
+     * Removes a wall from a node without changing the mod count. Generators
+     * carve with it and count the whole pass once when it ends, so that tiles
+     * carved in parallel do not all write a shared counter.
+     */
+    final void carveWall(int x, int y, Direction d) {
         checkBounds(x, y);
-        b[y * width + x] &= ~d.mask;
+        cells.clear(index(x, y), d.mask);
         int tx = x + d.dx;
         int ty = y + d.dy;
         if (isInBounds(tx, ty)) {
-            b[ty * width + tx] &= ~d.getReverse().mask;
+            cells.clear(index(tx, ty), d.getReverse().mask);
         }
     }
 
+    /** Counts a change of the walls made without counting each wall, such as a generation pass. */
+    final void wallsChanged() {
+        ++modCount;
+    }
+
     /**
      * Removes a wall from a node.
      * 
@@ -159,13 +333,64 @@ public abstract class Maze implements Serializable {
 
     /** Removes all walls. */
     public void clear() {
-        Arrays.fill(b, (byte) 0);
+        ++modCount;
+        cells.fill(0);
     }
 
-    /** Returns the flag bits for a node. */
+    /**
+     * Packs the walls of two nodes into each byte, halving the memory used by
+     * the maze. The flag bits are discarded, so this should only be called on
+     * a finished maze. Setting flags, as generating the maze again does,
+     * restores the byte per node storage. Mazes stored off the heap are left
+     * as they are.
+     *
+     * @throws IllegalStateException if the maze is too large to be packed
+     */
+    public void compact() {
+        if (cells.hasFlags() && cells.isHeap()) {
+            cells = cells.toPacked();
+        }
+    }
+
+    /** Returns true if the maze is {@link #compact() compacted}. */
+    public boolean isCompact() {
+        return !cells.hasFlags();
+    }
+
+    /** Returns the number of bytes used to store the nodes of the maze. */
+    public long getStorageSize() {
+        return cells.byteSize();
+    }
+
+    /** Returns the storage of the nodes. */
+    public CellStorage getStorage() {
+        return cells;
+    }
+
+    /** Replaces the storage of the nodes with one of the same size. */
+    void setStorage(CellStorage storage) {
+        if (storage.size() != getSize()) {
+            throw new IllegalArgumentException("Storage size must be width * height");
+        }
+        cells = storage;
+        ++modCount;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (width <= 0 || height <= 0 || cells == null || cells.size() != getSize()) {
+            throw new InvalidObjectException("Storage size must be width * height");
+        }
+    }
+
+    /** Returns the storage index of a node. */
+    protected final long index(int x, int y) {
+        return (long) y * width + x;
+    }
+
+    /** Returns the flag bits for a node, or 0 if the maze is compacted. */
     protected int getFlags(int x, int y) {
-        /* Mask is required b/c of sign extension from widening conversion. */
-        return (b[y * width + x] >> 4) & WALL_MASK;
+        return cells.get(index(x, y)) >>> 4;
     }
 
     /** Returns the flag bits for a node. */
@@ -173,10 +398,18 @@ public abstract class Maze implements Serializable {
         return getFlags(p.getX(), p.getY());
     }
 
-    /** Sets the flag bits for a node. */
+    /** Restores the byte per node storage of a compacted maze. */
+    protected void expand() {
+        if (!cells.hasFlags()) {
+            cells = cells.toBytes();
+        }
+    }
+
+    /** Sets the flag bits for a node, expanding a compacted maze. */
     protected void setFlags(int x, int y, int flags) {
-        int i = y * width + x;
-        b[i] = (byte) ((b[i] & WALL_MASK) | (flags << 4));
+        expand();
+        long i = index(x, y);
+        cells.set(i, (cells.get(i) & WALL_MASK) | (flags << 4));
     }
 
     /** Sets the flag bits for a node. */
@@ -198,47 +431,11 @@ public abstract class Maze implements Serializable {
 
     /** Checks if a node is walled off from all directions. */
     protected boolean isUnvisited(int x, int y) {
-        return (b[y * width + x] & WALL_MASK) == WALL_MASK;
+        return (cells.get(index(x, y)) & WALL_MASK) == WALL_MASK;
     }
 
     @Override
     public String toString() {
-        String lineSeparator = System.getProperty("line.separator");
-        StringBuilder builder = new StringBuilder();
-        builder.append("+");
-        for (int x = 0; x < width; ++x) {
-            if ((b[x] & Direction.NORTH.mask) != 0) {
-                builder.append("---+");
-            } else {
-                builder.append("   +");
-            }
-        }
-        builder.append(lineSeparator);
-        for (int y = 0; y < height; ++y) {
-            int yw = y * width;
-            if ((b[yw] & Direction.WEST.mask) != 0) {
-                builder.append("|");
-            } else {
-                builder.append(" ");
-            }
-            for (int x = 0; x < width; ++x) {
-                if ((b[yw + x] & Direction.EAST.mask) != 0) {
-                    builder.append("   |");
-                } else {
-                    builder.append("    ");
-                }
-            }
-            builder.append(lineSeparator);
-            builder.append("+");
-            for (int x = 0; x < width; ++x) {
-                if ((b[yw + x] & Direction.SOUTH.mask) != 0) {
-                    builder.append("---+");
-                } else {
-                    builder.append("   +");
-                }
-            }
-            builder.append(lineSeparator);
-        }
-        return builder.toString();
+        return MazeExporter.toText(this);
     }
 }
@@ -0,0 +1,287 @@
+package maze;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Exports mazes as text and PNG images. Every export reads the maze one row at
+ * a time and writes each line or scanline as soon as it is complete, so the
+ * memory used is proportional to the width of the maze, not to its size.
+ * <p>
+ * The text formats are those of {@link Maze#toString()} and
+ * {@link TileMaze#toString()}. Images show the tile grid of {@link TileMaze},
+ * walls in black and passages in white, as a one bit greyscale PNG.
+ */
+public final class MazeExporter {
+    /* Size of the deflate buffer and of the largest IDAT chunk. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+    private MazeExporter() {
+    }
+
+    /**
+     * Writes a maze as text, with {@code +---+} borders and {@code |} walls.
+     *
+     * @param  maze the maze
+     * @param  out where to append the text
+     * @throws IOException if the text cannot be appended
+     * @throws NullPointerException if an argument is null
+     */
+    public static void writeText(Maze maze, Appendable out) throws IOException {
+        String lineSeparator = System.getProperty("line.separator");
+        int width = maze.getWidth();
+        byte[] row = new byte[width];
+        StringBuilder line = new StringBuilder(4 * width + 1 + lineSeparator.length());
+
+        maze.readRow(0, row, 0);
+        line.append('+');
+        for (int x = 0; x < width; ++x) {
+            line.append((row[x] & Direction.NORTH.mask) != 0 ? "---+" : "   +");
+        }
+        out.append(line.append(lineSeparator));
+
+        for (int y = 0; y < maze.getHeight(); ++y) {
+            if (y > 0) {
+                maze.readRow(y, row, 0);
+            }
+            line.setLength(0);
+            line.append((row[0] & Direction.WEST.mask) != 0 ? '|' : ' ');
+            for (int x = 0; x < width; ++x) {
+                line.append((row[x] & Direction.EAST.mask) != 0 ? "   |" : "    ");
+            }
+            out.append(line.append(lineSeparator));
+
+            line.setLength(0);
+            line.append('+');
+            for (int x = 0; x < width; ++x) {
+                line.append((row[x] & Direction.SOUTH.mask) != 0 ? "---+" : "   +");
+            }
+            out.append(line.append(lineSeparator));
+        }
+    }
+
+    /**
+     * Writes a maze as US-ASCII text to a stream. The stream is flushed but
+     * not closed.
+     *
+     * @param  maze the maze
+     * @param  out the stream
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if an argument is null
+     * @see    #writeText(Maze, Appendable)
+     */
+    public static void writeText(Maze maze, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), CHUNK_SIZE);
+        writeText(maze, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the tiles of a maze as text, {@code "# "} for a wall and two
+     * spaces for a passage.
+     *
+     * @param  maze the maze
+     * @param  out where to append the text
+     * @throws IOException if the text cannot be appended
+     * @throws NullPointerException if an argument is null
+     */
+    public static void writeTileText(TileMaze maze, Appendable out) throws IOException {
+        String lineSeparator = System.getProperty("line.separator");
+        int width = maze.getWidth();
+        long[] row = new long[maze.getWordsPerRow()];
+        StringBuilder line = new StringBuilder(2 * width + lineSeparator.length());
+        for (int y = 0; y < maze.getHeight(); ++y) {
+            maze.readRow(y, row, 0);
+            line.setLength(0);
+            for (int x = 0; x < width; ++x) {
+                line.append((row[x >>> 6] >>> x & 1) != 0 ? "# " : "  ");
+            }
+            out.append(line.append(lineSeparator));
+        }
+    }
+
+    /**
+     * Writes the tiles of a maze as US-ASCII text to a stream. The stream is
+     * flushed but not closed.
+     *
+     * @param  maze the maze
+     * @param  out the stream
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if an argument is null
+     * @see    #writeTileText(TileMaze, Appendable)
+     */
+    public static void writeTileText(TileMaze maze, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), CHUNK_SIZE);
+        writeTileText(maze, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the tiles of a maze as a PNG image, each tile a square of
+     * pixels. The stream is flushed but not closed.
+     *
+     * @param  maze the maze
+     * @param  out the stream
+     * @param  scale the width and height of a tile in pixels
+     * @throws IllegalArgumentException if scale is not positive or the image
+     *         would be wider or taller than 2<sup>31</sup> - 1 pixels
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if an argument is null
+     */
+    public static void writePng(TileMaze maze, OutputStream out, int scale) throws IOException {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+        int width = maze.getWidth();
+        long imageWidth = (long) width * scale;
+        long imageHeight = (long) maze.getHeight() * scale;
+        if (imageWidth > Integer.MAX_VALUE || imageHeight > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image is too large");
+        }
+
+        long[] row = new long[maze.getWordsPerRow()];
+        /* A scanline is a filter type byte followed by eight pixels per byte. */
+        byte[] scanline = new byte[1 + (int) ((imageWidth + 7) >>> 3)];
+        PngWriter png = new PngWriter(out, (int) imageWidth, (int) imageHeight);
+        for (int y = 0; y < maze.getHeight(); ++y) {
+            maze.readRow(y, row, 0);
+            if (scale == 1) {
+                /* Walls are black: invert, and put the lowest tile in the highest bit. */
+                for (int i = 1; i < scanline.length; ++i) {
+                    int tile = (i - 1) << 3;
+                    scanline[i] = (byte) ~(Integer.reverse((int) (row[tile >>> 6] >>> tile) & 0xff) >>> 24);
+                }
+            } else {
+                Arrays.fill(scanline, (byte) 0);
+                int pixel = 0;
+                for (int x = 0; x < width; ++x) {
+                    boolean wall = (row[x >>> 6] >>> x & 1) != 0;
+                    for (int i = 0; i < scale; ++i, ++pixel) {
+                        if (!wall) {
+                            /* Passages are white; bit 7 is the leftmost pixel. */
+                            scanline[1 + (pixel >>> 3)] |= 0x80 >>> (pixel & 7);
+                        }
+                    }
+                }
+            }
+            for (int i = 0; i < scale; ++i) {
+                png.writeScanline(scanline);
+            }
+        }
+        png.finish();
+        out.flush();
+    }
+
+    /**
+     * Writes the tiles of a maze as a PNG image.
+     *
+     * @param  maze the maze
+     * @param  out the stream
+     * @param  scale the width and height of a tile in pixels
+     * @throws IllegalArgumentException if scale is not positive or the image
+     *         would be too large
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if an argument is null
+     * @see    #writePng(TileMaze, OutputStream, int)
+     */
+    public static void writePng(Maze maze, OutputStream out, int scale) throws IOException {
+        writePng(new TileMaze(maze), out, scale);
+    }
+
+    /** Returns the text of a maze; used by {@link Maze#toString()}. */
+    static String toText(Maze maze) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeText(maze, builder);
+        } catch (IOException e) {
+            /* A StringBuilder does not throw. */
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /** Returns the text of a tile maze; used by {@link TileMaze#toString()}. */
+    static String toTileText(TileMaze maze) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            writeTileText(maze, builder);
+        } catch (IOException e) {
+            /* A StringBuilder does not throw. */
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /** Writes a PNG image one scanline at a time, deflating as it goes. */
+    private static final class PngWriter {
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private final CRC32 crc = new CRC32();
+
+        PngWriter(OutputStream out, int width, int height) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, CHUNK_SIZE));
+            this.out.write(PNG_SIGNATURE);
+            byte[] header = new byte[13];
+            putInt(header, 0, width);
+            putInt(header, 4, height);
+            header[8] = 1; /* bit depth */
+            header[9] = 0; /* greyscale */
+            writeChunk("IHDR", header, header.length);
+        }
+
+        void writeScanline(byte[] scanline) throws IOException {
+            deflater.setInput(scanline);
+            while (!deflater.needsInput()) {
+                drain();
+            }
+        }
+
+        void finish() throws IOException {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain();
+            }
+            deflater.end();
+            writeChunk("IEND", buffer, 0);
+            out.flush();
+        }
+
+        private void drain() throws IOException {
+            int length = deflater.deflate(buffer);
+            if (length > 0) {
+                writeChunk("IDAT", buffer, length);
+            }
+        }
+
+        private void writeChunk(String type, byte[] data, int length) throws IOException {
+            byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+            crc.reset();
+            crc.update(name);
+            crc.update(data, 0, length);
+            out.writeInt(length);
+            out.write(name);
+            out.write(data, 0, length);
+            out.writeInt((int) crc.getValue());
+        }
+
+        private static void putInt(byte[] b, int off, int value) {
+            b[off] = (byte) (value >>> 24);
+            b[off + 1] = (byte) (value >>> 16);
+            b[off + 2] = (byte) (value >>> 8);
+            b[off + 3] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package maze;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.random.RandomGenerator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes mazes in a compact, versioned binary format. Unlike Java
+ * serialization, the format does not depend on the layout of the maze classes.
+ * <p>
+ * A file starts with a header, all numbers big-endian:
+ * <pre>
+ *  0  4  magic "IMAZ"
+ *  4  2  version
+ *  6  1  compression: 0 none, 1 run-length, 2 deflate
+ *  7  1  generator id ({@link MazeGenerator#id}), 0 if unknown
+ *  8  4  width
+ * 12  4  height
+ * 16  8  seed
+ * 24  1  flags: bit 0 set if the maze is seeded
+ * 25  1  length n of the random number generator algorithm name
+ * 26  n  algorithm name, US-ASCII
+ * 26+n 8 payload length in bytes
+ * </pre>
+ * The payload is the wall plane, compressed as given in the header. The plane
+ * packs the wall bits of two nodes into each byte in row-major order, the node
+ * with the even index in the low nibble, so it is half a byte per node.
+ * <p>
+ * Files are written through a {@link FileChannel} and read by memory-mapping
+ * them. An uncompressed plane is copied straight from the mapped file into the
+ * maze, and a compacted maze is written straight from its storage.
+ */
+public final class MazeFormat {
+    /** Compression of the wall plane. */
+    public enum Compression {
+        /** The plane is stored as is; the fastest to read. */
+        NONE,
+        /** Runs of equal bytes are collapsed; cheap, helps sparse mazes. */
+        RLE,
+        /** The plane is deflated; the smallest files. */
+        DEFLATE
+    }
+
+    /** The current version of the format. */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = ('I' << 24) | ('M' << 16) | ('A' << 8) | 'Z';
+    private static final int FLAG_SEEDED = 1;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /* Run-length encoding limits; see decodeRunLength. */
+    private static final int MIN_RUN = 3;
+    private static final int MAX_RUN = 130;
+    private static final int MAX_LITERALS = 128;
+
+    /* Deflate expands a byte to at most 1032 bytes. */
+    private static final long MAX_INFLATE_RATIO = 1032;
+
+    private MazeFormat() {
+    }
+
+    /**
+     * Writes a maze to a file, replacing the file if it exists.
+     *
+     * @param  maze the maze
+     * @param  file the file
+     * @param  compression the compression of the wall plane
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if an argument is null
+     */
+    public static void write(Maze maze, Path file, Compression compression) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(maze, channel, compression);
+        }
+    }
+
+    /**
+     * Writes a maze to a channel at its current position.
+     *
+     * @param  maze the maze
+     * @param  channel the channel
+     * @param  compression the compression of the wall plane
+     * @throws IOException if the channel cannot be written
+     * @throws NullPointerException if an argument is null
+     */
+    public static void write(Maze maze, FileChannel channel, Compression compression) throws IOException {
+        MazeGenerator generator = MazeGenerator.of(maze);
+        long seed = 0;
+        String algorithm = "";
+        int flags = 0;
+        if (maze instanceof RandomizedMaze && ((RandomizedMaze) maze).isSeeded()) {
+            RandomizedMaze randomized = (RandomizedMaze) maze;
+            seed = randomized.getSeed();
+            algorithm = randomized.getAlgorithm();
+            flags |= FLAG_SEEDED;
+        }
+        byte[] name = algorithm.getBytes(StandardCharsets.US_ASCII);
+
+        ByteBuffer header = ByteBuffer.allocate(34 + name.length);
+        header.putInt(MAGIC)
+                .putShort((short) VERSION)
+                .put((byte) compression.ordinal())
+                .put((byte) (generator == null ? 0 : generator.id))
+                .putInt(maze.getWidth())
+                .putInt(maze.getHeight())
+                .putLong(seed)
+                .put((byte) flags)
+                .put((byte) name.length)
+                .put(name);
+        int lengthOffset = header.position();
+        header.putLong(0).flip();
+
+        long start = channel.position();
+        writeFully(channel, header);
+        long payloadStart = channel.position();
+
+        CellStorage cells = maze.getStorage();
+        if (compression == Compression.NONE) {
+            if (cells instanceof CellStorage.PackedStorage) {
+                writeFully(channel, ByteBuffer.wrap(((CellStorage.PackedStorage) cells).bytes()));
+            } else {
+                ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+                long planeSize = planeSize(cells.size());
+                for (long i = 0; i < planeSize; i += BLOCK_SIZE) {
+                    int length = (int) Math.min(BLOCK_SIZE, planeSize - i);
+                    pack(cells, i, block.array(), length);
+                    block.clear().limit(length);
+                    writeFully(channel, block);
+                }
+            }
+        } else {
+            /* The stream is not closed, as that would close the channel. */
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BLOCK_SIZE);
+            Deflater deflater = null;
+            if (compression == Compression.DEFLATE) {
+                deflater = new Deflater(Deflater.BEST_SPEED);
+                out = new DeflaterOutputStream(out, deflater, BLOCK_SIZE);
+            } else {
+                out = new RunLengthOutputStream(out);
+            }
+            writePlane(cells, out);
+            if (out instanceof DeflaterOutputStream) {
+                ((DeflaterOutputStream) out).finish();
+            } else {
+                ((RunLengthOutputStream) out).finish();
+            }
+            out.flush();
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        long end = channel.position();
+        ByteBuffer length = ByteBuffer.allocate(8).putLong(0, end - payloadStart);
+        channel.write(length, start + lengthOffset);
+    }
+
+    /**
+     * Reads a maze from a file by memory-mapping it. Mazes of a known
+     * generator are returned as instances of that generator, seeded as they
+     * were written; other mazes cannot be generated again. The maze is
+     * {@link Maze#compact() compacted}.
+     *
+     * @param  file the file
+     * @return the maze
+     * @throws IOException if the file cannot be read or is not a valid maze
+     *         file
+     * @throws NullPointerException if file is null
+     */
+    public static Maze read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Maze file is too large to be mapped: " + size + " bytes");
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Reads a maze from a buffer, starting at its position.
+     *
+     * @param  buffer the buffer
+     * @return the maze
+     * @throws IOException if the buffer does not hold a valid maze
+     * @throws NullPointerException if buffer is null
+     */
+    public static Maze read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a maze file");
+            }
+            int version = buffer.getShort() & 0xffff;
+            if (version != VERSION) {
+                throw new IOException("Unsupported maze file version: " + version);
+            }
+            int compressionIndex = buffer.get() & 0xff;
+            if (compressionIndex >= Compression.values().length) {
+                throw new IOException("Unknown compression: " + compressionIndex);
+            }
+            Compression compression = Compression.values()[compressionIndex];
+            int generatorId = buffer.get() & 0xff;
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            long seed = buffer.getLong();
+            int flags = buffer.get() & 0xff;
+            byte[] name = new byte[buffer.get() & 0xff];
+            buffer.get(name);
+            long payloadLength = buffer.getLong();
+            if (width <= 0 || height <= 0 || payloadLength < 0 || payloadLength > buffer.remaining()) {
+                throw new IOException("Corrupt maze file header");
+            }
+
+            /* Checks the sizes before allocating, so a corrupt header cannot exhaust the heap. */
+            long nodes = (long) width * height;
+            long planeSize = planeSize(nodes);
+            if (planeSize > CellStorage.MAX_ARRAY_SIZE) {
+                throw new IOException("Maze of " + width + "x" + height + " is too large for the heap");
+            }
+            if (planeSize > maxPlaneSize(compression, payloadLength)
+                    || (compression == Compression.NONE && payloadLength != planeSize)) {
+                throw new IOException("Corrupt maze file: wall plane has the wrong size");
+            }
+
+            CellStorage.PackedStorage cells = new CellStorage.PackedStorage(nodes);
+            ByteBuffer payload = buffer.slice(buffer.position(), (int) payloadLength);
+            byte[] plane = cells.bytes();
+            switch (compression) {
+                case NONE:
+                    payload.get(plane);
+                    break;
+                case RLE:
+                    decodeRunLength(payload, plane);
+                    break;
+                case DEFLATE:
+                    inflate(payload, plane);
+                    break;
+            }
+            return createMaze(generatorId, width, height, seed, (flags & FLAG_SEEDED) != 0,
+                    new String(name, StandardCharsets.US_ASCII), cells);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated maze file");
+        }
+    }
+
+    /**
+     * Returns the wall plane of a maze, in the layout of the payload of the
+     * format, for storing a maze within other data.
+     *
+     * @param  maze the maze
+     * @return the plane, half a byte per node
+     * @throws IllegalArgumentException if the plane is larger than an array
+     * @throws NullPointerException if maze is null
+     */
+    public static byte[] toPlane(Maze maze) {
+        CellStorage cells = maze.getStorage();
+        long planeSize = planeSize(cells.size());
+        if (planeSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze is too large for an array");
+        }
+        byte[] plane = new byte[(int) planeSize];
+        pack(cells, 0, plane, plane.length);
+        return plane;
+    }
+
+    /**
+     * Creates a maze from a wall plane returned by {@link #toPlane(Maze)}.
+     * The maze cannot be generated again.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  plane the plane, which is copied
+     * @return the maze, compacted
+     * @throws IllegalArgumentException if width or height is not positive, or
+     *         the plane does not have the size of the maze
+     * @throws NullPointerException if plane is null
+     */
+    public static Maze fromPlane(int width, int height, byte[] plane) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Width and height must be positive");
+        }
+        long nodes = (long) width * height;
+        if (plane.length != planeSize(nodes)) {
+            throw new IllegalArgumentException("Wall plane has the wrong size");
+        }
+        CellStorage.PackedStorage cells = new CellStorage.PackedStorage(nodes);
+        System.arraycopy(plane, 0, cells.bytes(), 0, plane.length);
+        return new LoadedMaze(width, height, cells);
+    }
+
+    private static Maze createMaze(int generatorId, int width, int height, long seed, boolean seeded,
+            String algorithm, CellStorage cells) throws IOException {
+        if (generatorId == 0) {
+            return new LoadedMaze(width, height, cells);
+        }
+        try {
+            MazeGenerator generator = MazeGenerator.forId(generatorId);
+            return seeded ? generator.create(width, height, seed, algorithm, cells)
+                    : generator.create(width, height, RandomGenerator.getDefault(), cells);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Cannot create maze: " + e.getMessage(), e);
+        }
+    }
+
+    private static long planeSize(long nodes) {
+        return (nodes + 1) >>> 1;
+    }
+
+    /** Returns the largest plane a payload can hold, from the best ratio of the compression. */
+    private static long maxPlaneSize(Compression compression, long payloadLength) {
+        switch (compression) {
+            case RLE:
+                return payloadLength / 2 * MAX_RUN;
+            case DEFLATE:
+                return payloadLength * MAX_INFLATE_RATIO;
+            default:
+                return payloadLength;
+        }
+    }
+
+    /** Packs the walls of the nodes of a run of plane bytes into dst. */
+    private static void pack(CellStorage cells, long from, byte[] dst, int length) {
+        long nodes = cells.size();
+        for (int j = 0; j < length; ++j) {
+            long i = (from + j) << 1;
+            int walls = cells.get(i) & CellStorage.WALL_MASK;
+            if (i + 1 < nodes) {
+                walls |= (cells.get(i + 1) & CellStorage.WALL_MASK) << 4;
+            }
+            dst[j] = (byte) walls;
+        }
+    }
+
+    private static void writePlane(CellStorage cells, OutputStream out) throws IOException {
+        if (cells instanceof CellStorage.PackedStorage) {
+            out.write(((CellStorage.PackedStorage) cells).bytes());
+            return;
+        }
+        byte[] block = new byte[BLOCK_SIZE];
+        long planeSize = planeSize(cells.size());
+        for (long i = 0; i < planeSize; i += BLOCK_SIZE) {
+            int length = (int) Math.min(BLOCK_SIZE, planeSize - i);
+            pack(cells, i, block, length);
+            out.write(block, 0, length);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void inflate(ByteBuffer payload, byte[] plane) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            int done = 0;
+            while (done < plane.length) {
+                int n = inflater.inflate(plane, done, plane.length - done);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Corrupt maze file: wall plane is too short");
+                }
+                done += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt maze file: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /*
+     * Run-length encoding in the style of PackBits. A control byte c below 128
+     * is followed by c + 1 literal bytes; a control byte c of 128 or more is
+     * followed by one byte that is repeated c - 125 times.
+     */
+    private static void decodeRunLength(ByteBuffer payload, byte[] plane) throws IOException {
+        int done = 0;
+        while (payload.hasRemaining()) {
+            int control = payload.get() & 0xff;
+            if (control < 128) {
+                int length = control + 1;
+                if (done + length > plane.length) {
+                    throw new IOException("Corrupt maze file: wall plane is too long");
+                }
+                payload.get(plane, done, length);
+                done += length;
+            } else {
+                int length = control - 125;
+                if (done + length > plane.length) {
+                    throw new IOException("Corrupt maze file: wall plane is too long");
+                }
+                byte value = payload.get();
+                for (int j = 0; j < length; ++j) {
+                    plane[done++] = value;
+                }
+            }
+        }
+        if (done != plane.length) {
+            throw new IOException("Corrupt maze file: wall plane is too short");
+        }
+    }
+
+    /** Run-length encodes the bytes written to it. */
+    private static final class RunLengthOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] literals = new byte[MAX_LITERALS];
+        private int literalCount;
+        private int runValue = -1;
+        private int runLength;
+
+        RunLengthOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            b &= 0xff;
+            if (b == runValue) {
+                if (++runLength == MAX_RUN) {
+                    flushRun();
+                }
+                return;
+            }
+            flushRun();
+            runValue = b;
+            runLength = 1;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int j = off; j < off + len; ++j) {
+                write(b[j]);
+            }
+        }
+
+        /* Emits the pending run, as literals if it is too short to pay off. */
+        private void flushRun() throws IOException {
+            if (runLength >= MIN_RUN) {
+                flushLiterals();
+                out.write(runLength + 125);
+                out.write(runValue);
+            } else {
+                for (int j = 0; j < runLength; ++j) {
+                    literals[literalCount++] = (byte) runValue;
+                    if (literalCount == MAX_LITERALS) {
+                        flushLiterals();
+                    }
+                }
+            }
+            runValue = -1;
+            runLength = 0;
+        }
+
+        private void flushLiterals() throws IOException {
+            if (literalCount > 0) {
+                out.write(literalCount - 1);
+                out.write(literals, 0, literalCount);
+                literalCount = 0;
+            }
+        }
+
+        void finish() throws IOException {
+            flushRun();
+            flushLiterals();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
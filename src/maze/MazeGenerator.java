@@ -0,0 +1,275 @@
+package maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Registry of the maze generation algorithms. Each algorithm creates mazes of
+ * a different texture, which makes the algorithm a cheap difficulty knob:
+ * <ul>
+ * <li>{@link #RECURSIVE_BACKTRACKER} and {@link #PARALLEL_TILED}: long winding
+ * corridors with few dead ends</li>
+ * <li>{@link #ELLER}: mostly horizontal runs, streamed row by row</li>
+ * <li>{@link #KRUSKAL} and {@link #PRIM}: many short dead ends</li>
+ * <li>{@link #WILSON}: uniformly random, with a mix of both</li>
+ * <li>{@link #GROWING_TREE}: a blend of backtracking and Prim's algorithm</li>
+ * </ul>
+ * Every generator is seeded, so a maze is reproducible from its generator,
+ * dimensions and seed. Mazes are created with the default settings of their
+ * class, such as {@link ParallelTiledMaze#DEFAULT_TILE_SIZE} and
+ * {@link GrowingTreeMaze#DEFAULT_NEWEST_BIAS}; a maze whose settings were
+ * changed is not {@link RandomizedMaze#isReproducible() reproducible} from
+ * its seed.
+ */
+public enum MazeGenerator {
+    RECURSIVE_BACKTRACKER(1) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new RecursiveBacktracker(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new RecursiveBacktracker(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new RecursiveBacktracker(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new RecursiveBacktracker(width, height, rnd, storage);
+        }
+    },
+    PARALLEL_TILED(2) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new ParallelTiledMaze(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new ParallelTiledMaze(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new ParallelTiledMaze(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new ParallelTiledMaze(width, height, rnd, storage);
+        }
+    },
+    ELLER(3) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new EllerMaze(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new EllerMaze(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new EllerMaze(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new EllerMaze(width, height, rnd, storage);
+        }
+    },
+    KRUSKAL(4) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new KruskalMaze(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new KruskalMaze(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new KruskalMaze(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new KruskalMaze(width, height, rnd, storage);
+        }
+    },
+    PRIM(5) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new PrimMaze(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new PrimMaze(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new PrimMaze(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new PrimMaze(width, height, rnd, storage);
+        }
+    },
+    WILSON(6) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new WilsonMaze(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new WilsonMaze(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new WilsonMaze(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new WilsonMaze(width, height, rnd, storage);
+        }
+    },
+    GROWING_TREE(7) {
+        @Override
+        public RandomizedMaze create(int width, int height, long seed, String algorithm) {
+            return new GrowingTreeMaze(width, height, seed, algorithm);
+        }
+
+        @Override
+        public RandomizedMaze create(int width, int height, RandomGenerator rnd) {
+            return new GrowingTreeMaze(width, height, rnd);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage) {
+            return new GrowingTreeMaze(width, height, seed, algorithm, storage);
+        }
+
+        @Override
+        RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage) {
+            return new GrowingTreeMaze(width, height, rnd, storage);
+        }
+    };
+
+    /** A stable identifier, unlike the ordinal, for storing with a maze. */
+    public final int id;
+
+    MazeGenerator(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Creates a maze seeded using the default random number generator
+     * algorithm. The maze still has to be generated.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @return the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public RandomizedMaze create(int width, int height, long seed) {
+        return create(width, height, seed, RandomizedMaze.DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * Creates a maze seeded using the specified random number generator
+     * algorithm. The maze still has to be generated.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @return the maze
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public abstract RandomizedMaze create(int width, int height, long seed, String algorithm);
+
+    /**
+     * Creates a maze that draws from the specified random number generator.
+     * The maze still has to be generated.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @return the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public abstract RandomizedMaze create(int width, int height, RandomGenerator rnd);
+
+    /*
+     * The generators have package-private constructors that take a storage,
+     * used through these methods: MazeFormat decodes the walls first and then
+     * builds the maze on them, rather than allocating a storage to replace.
+     */
+
+    /** Creates a seeded maze on the specified storage, for loading a maze. */
+    abstract RandomizedMaze create(int width, int height, long seed, String algorithm, CellStorage storage);
+
+    /** Creates a maze on the specified storage that draws from rnd, for loading a maze. */
+    abstract RandomizedMaze create(int width, int height, RandomGenerator rnd, CellStorage storage);
+
+    /**
+     * Returns the generator with the specified identifier.
+     *
+     * @param  id the identifier
+     * @return the generator
+     * @throws IllegalArgumentException if no generator has the identifier
+     */
+    public static MazeGenerator forId(int id) {
+        for (MazeGenerator generator : values()) {
+            if (generator.id == id) {
+                return generator;
+            }
+        }
+        throw new IllegalArgumentException("Unknown maze generator: " + id);
+    }
+
+    /**
+     * Returns the generator that created a maze.
+     *
+     * @param  maze the maze
+     * @return the generator, or null if the maze was created by another class
+     * @throws NullPointerException if maze is null
+     */
+    public static MazeGenerator of(Maze maze) {
+        Class<?> type = maze.getClass();
+        if (type == RecursiveBacktracker.class) {
+            return RECURSIVE_BACKTRACKER;
+        } else if (type == ParallelTiledMaze.class) {
+            return PARALLEL_TILED;
+        } else if (type == EllerMaze.class) {
+            return ELLER;
+        } else if (type == KruskalMaze.class) {
+            return KRUSKAL;
+        } else if (type == PrimMaze.class) {
+            return PRIM;
+        } else if (type == WilsonMaze.class) {
+            return WILSON;
+        } else if (type == GrowingTreeMaze.class) {
+            return GROWING_TREE;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,314 @@
+package maze;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generates a maze in parallel by splitting the grid into square tiles. Each
+ * tile is carved independently with the recursive backtracking algorithm on a
+ * fork-join pool, after which the tiles are joined by a random spanning tree
+ * over the tile grid. Every tile is a perfect maze and every spanning tree edge
+ * opens exactly one wall between two tiles, so the result is a perfect maze:
+ * it has no loops and no isolated regions.
+ * <p>
+ * Every tile gets its own random number generator derived from the maze's
+ * generator, so a seeded maze is reproducible regardless of the number of
+ * worker threads or the order in which tiles are carved.
+ */
+public class ParallelTiledMaze extends RandomizedMaze {
+    private static final long serialVersionUID = 2940861372117305316L;
+
+    /** The default width and height of a tile. */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /* Tiles carved per task before the work is no longer split. */
+    private static final int TILES_PER_TASK = 4;
+
+    private int tileSize = DEFAULT_TILE_SIZE;
+
+    /**
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public ParallelTiledMaze(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public ParallelTiledMaze(int width, int height, long seed) {
+        super(width, height, seed);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public ParallelTiledMaze(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the storage of its nodes, and seeds
+     * it using the default algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  storage the storage of the nodes
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the size of the storage is not width * height
+     * @throws NullPointerException if storage is null
+     */
+    public ParallelTiledMaze(int width, int height, long seed, CellStorage storage) {
+        super(width, height, seed, DEFAULT_ALGORITHM, storage);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public ParallelTiledMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+    }
+
+    ParallelTiledMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+    }
+
+    ParallelTiledMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+    }
+
+    /** Returns the width and height of a tile. */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the width and height of a tile. Smaller tiles expose more
+     * parallelism but leave more visible seams between tiles. A maze
+     * generated with a size other than {@link #DEFAULT_TILE_SIZE} is not
+     * {@link RandomizedMaze#isReproducible() reproducible} from its seed alone.
+     *
+     * @param  tileSize the width and height of a tile
+     * @throws IllegalArgumentException if tileSize is less than 2
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize < 2) {
+            throw new IllegalArgumentException("Tile size must be at least 2");
+        }
+        this.tileSize = tileSize;
+    }
+
+    @Override
+    protected boolean hasDefaultSettings() {
+        return tileSize == DEFAULT_TILE_SIZE;
+    }
+
+    /** Generates the maze on the common fork-join pool. */
+    @Override
+    public void generate() {
+        generate(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates the maze on the specified fork-join pool.
+     *
+     * @param  pool the pool that carves the tiles
+     * @throws NullPointerException if pool is null
+     */
+    public void generate(ForkJoinPool pool) {
+        RandomGenerator rnd = newGenerationRandom();
+        long tileSeed = rnd.nextLong();
+        int tilesX = (getWidth() + tileSize - 1) / tileSize;
+        int tilesY = (getHeight() + tileSize - 1) / tileSize;
+
+        /* Packed nodes share bytes across tile borders, so tiles need bytes. */
+        expand();
+        fill();
+        pool.invoke(new CarveTask(tileSeed, tilesX, 0, tilesX * tilesY));
+        joinTiles(rnd, tilesX, tilesY);
+        markGenerated();
+    }
+
+    /** Carves a range of tiles, splitting the range while it is large. */
+    private class CarveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long tileSeed;
+        private final int tilesX;
+        private final int from;
+        private final int to;
+
+        CarveTask(long tileSeed, int tilesX, int from, int to) {
+            this.tileSeed = tileSeed;
+            this.tilesX = tilesX;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TILES_PER_TASK) {
+                for (int t = from; t < to; ++t) {
+                    carveTile(t % tilesX, t / tilesX, tileRandom(tileSeed, t));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CarveTask(tileSeed, tilesX, from, mid),
+                    new CarveTask(tileSeed, tilesX, mid, to));
+        }
+    }
+
+    private RandomGenerator tileRandom(long tileSeed, int tile) {
+        String algorithm = isSeeded() ? getAlgorithm() : DEFAULT_ALGORITHM;
+        return createGenerator(mix(tileSeed + tile * 0x9e3779b97f4a7c15L), algorithm);
+    }
+
+    /** Finalizer of the SplitMix64 generator; decorrelates adjacent seeds. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Carves a single tile with the recursive backtracking algorithm. Walls on
+     * the tile border are never removed, so tiles can be carved concurrently.
+     */
+    private void carveTile(int tx, int ty, RandomGenerator rnd) {
+        int x0 = tx * tileSize;
+        int y0 = ty * tileSize;
+        int x1 = Math.min(x0 + tileSize, getWidth());
+        int y1 = Math.min(y0 + tileSize, getHeight());
+        Direction[] directions = Direction.values();
+        Direction[] moves = new Direction[4];
+        int unvisited = (x1 - x0) * (y1 - y0) - 1;
+
+        int x = x0 + rnd.nextInt(x1 - x0);
+        int y = y0 + rnd.nextInt(y1 - y0);
+
+        while (unvisited > 0) {
+            /* Finds adjacent unvisited nodes inside the tile. */
+            int moveCount = 0;
+            if (y > y0 && isUnvisited(x, y - 1)) {
+                moves[moveCount++] = Direction.NORTH;
+            }
+            if (x < x1 - 1 && isUnvisited(x + 1, y)) {
+                moves[moveCount++] = Direction.EAST;
+            }
+            if (y < y1 - 1 && isUnvisited(x, y + 1)) {
+                moves[moveCount++] = Direction.SOUTH;
+            }
+            if (x > x0 && isUnvisited(x - 1, y)) {
+                moves[moveCount++] = Direction.WEST;
+            }
+
+            /* Takes a step back if there are no such nodes. */
+            if (moveCount == 0) {
+                Direction rev = directions[getFlags(x, y)].getReverse();
+                x += rev.dx;
+                y += rev.dy;
+                continue;
+            }
+
+            Direction d = moves[rnd.nextInt(moveCount)];
+            carveWall(x, y, d);
+            x += d.dx;
+            y += d.dy;
+            setFlags(x, y, d.ordinal());
+            --unvisited;
+        }
+    }
+
+    /**
+     * Joins the tiles with a random spanning tree over the tile grid, found
+     * with Kruskal's algorithm. Each tree edge opens one random wall on the
+     * border between the two tiles.
+     */
+    private void joinTiles(RandomGenerator rnd, int tilesX, int tilesY) {
+        int tileCount = tilesX * tilesY;
+        if (tileCount == 1) {
+            return;
+        }
+
+        /* Edge 2t joins tile t with its east neighbour, 2t + 1 with its south. */
+        int[] edges = new int[2 * tileCount];
+        int edgeCount = 0;
+        for (int t = 0; t < tileCount; ++t) {
+            if (t % tilesX < tilesX - 1) {
+                edges[edgeCount++] = 2 * t;
+            }
+            if (t / tilesX < tilesY - 1) {
+                edges[edgeCount++] = 2 * t + 1;
+            }
+        }
+
+        int[] parent = new int[tileCount];
+        for (int t = 0; t < tileCount; ++t) {
+            parent[t] = t;
+        }
+
+        int joins = tileCount - 1;
+        for (int i = edgeCount - 1; i >= 0 && joins > 0; --i) {
+            /* Draws the edges in random order with a partial Fisher-Yates shuffle. */
+            int j = rnd.nextInt(i + 1);
+            int edge = edges[j];
+            edges[j] = edges[i];
+
+            int t = edge >>> 1;
+            boolean south = (edge & 1) != 0;
+            int u = find(parent, t);
+            int v = find(parent, south ? t + tilesX : t + 1);
+            if (u == v) {
+                continue;
+            }
+            parent[u] = v;
+            --joins;
+
+            int x0 = (t % tilesX) * tileSize;
+            int y0 = (t / tilesX) * tileSize;
+            if (south) {
+                int span = Math.min(x0 + tileSize, getWidth()) - x0;
+                carveWall(x0 + rnd.nextInt(span), y0 + tileSize - 1, Direction.SOUTH);
+            } else {
+                int span = Math.min(y0 + tileSize, getHeight()) - y0;
+                carveWall(x0 + tileSize - 1, y0 + rnd.nextInt(span), Direction.EAST);
+            }
+        }
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+}
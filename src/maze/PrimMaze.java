@@ -0,0 +1,131 @@
+package maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Implements randomized Prim's algorithm. The maze grows from a random node by
+ * repeatedly adding a random frontier node, one that is adjacent to the maze,
+ * through a random wall. The frontier is an int array of node indices. The
+ * resulting mazes have many short dead ends radiating from the start.
+ */
+public class PrimMaze extends RandomizedMaze {
+    private static final long serialVersionUID = 3385062127838883573L;
+
+    private static final int IN = 1;
+    private static final int FRONTIER = 2;
+
+    /**
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public PrimMaze(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public PrimMaze(int width, int height, long seed) {
+        super(width, height, seed);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public PrimMaze(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public PrimMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+    }
+
+    PrimMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+    }
+
+    PrimMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+    }
+
+    @Override
+    public void generate() {
+        RandomGenerator rnd = newGenerationRandom();
+        int width = getWidth();
+        int height = getHeight();
+        int nodes = checkedSize();
+        Direction[] directions = Direction.values();
+        Direction[] moves = new Direction[4];
+        fill();
+
+        int[] frontier = new int[nodes];
+        int frontierCount = 0;
+
+        int start = rnd.nextInt(nodes);
+        setFlags(start % width, start / width, IN);
+        frontierCount = addFrontier(start % width, start / width, directions, frontier, frontierCount);
+
+        while (frontierCount > 0) {
+            int k = rnd.nextInt(frontierCount);
+            int i = frontier[k];
+            frontier[k] = frontier[--frontierCount];
+            int x = i % width;
+            int y = i / width;
+
+            /* Connects the node to a random adjacent node in the maze. */
+            int moveCount = 0;
+            for (Direction d : directions) {
+                int tx = x + d.dx;
+                int ty = y + d.dy;
+                if (tx >= 0 && tx < width && ty >= 0 && ty < height && getFlags(tx, ty) == IN) {
+                    moves[moveCount++] = d;
+                }
+            }
+            carveWall(x, y, moves[rnd.nextInt(moveCount)]);
+            setFlags(x, y, IN);
+            frontierCount = addFrontier(x, y, directions, frontier, frontierCount);
+        }
+        markGenerated();
+    }
+
+    /** Adds the unmarked neighbours of a node to the frontier. */
+    private int addFrontier(int x, int y, Direction[] directions, int[] frontier, int frontierCount) {
+        int width = getWidth();
+        for (Direction d : directions) {
+            int tx = x + d.dx;
+            int ty = y + d.dy;
+            if (isInBounds(tx, ty) && getFlags(tx, ty) == 0) {
+                setFlags(tx, ty, FRONTIER);
+                frontier[frontierCount++] = ty * width + tx;
+            }
+        }
+        return frontierCount;
+    }
+}
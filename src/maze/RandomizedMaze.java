@@ -0,0 +1,258 @@
+package maze;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * Base class for mazes whose generation algorithm is driven by a random number
+ * generator. A maze is either seeded, in which case every call to
+ * {@link #generate()} produces the same maze, or it draws from a caller
+ * supplied {@link RandomGenerator} that is consumed as the maze is generated.
+ * <p>
+ * Seeded mazes create a fresh generator of the configured algorithm from the
+ * seed at the start of each generation, so a maze can be reproduced from the
+ * seed and algorithm name alone (for example, from a bug report).
+ * <p>
+ * That holds only while the settings that shape the maze, such as the tile
+ * size of a {@link ParallelTiledMaze} or the newest bias of a
+ * {@link GrowingTreeMaze}, keep the defaults that {@link MazeGenerator}
+ * creates mazes with, and the walls are left as generated.
+ * {@link #isReproducible()} tells whether a maze can be stored as its
+ * generator, seed and algorithm: it is true after a generation pass with the
+ * default settings and turns false on the first wall added or removed.
+ */
+public abstract class RandomizedMaze extends Maze {
+    private static final long serialVersionUID = -1931606472911372744L;
+
+    /**
+     * The default random number generator algorithm. It is unsynchronized,
+     * which makes it considerably faster than {@link java.util.Random}.
+     */
+    public static final String DEFAULT_ALGORITHM = "Xoroshiro128PlusPlus";
+
+    private final long seed;
+    private final String algorithm;
+    private transient RandomGenerator rnd;
+    private transient boolean reproducible;
+    private transient int generatedModCount;
+
+    /**
+     * Sets the dimensions of the maze and seeds it with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    protected RandomizedMaze(int width, int height) {
+        this(width, height, newSeed());
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    protected RandomizedMaze(int width, int height, long seed) {
+        this(width, height, seed, DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm,
+     *         such as "L64X128MixRandom" or "Xoroshiro128PlusPlus"
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    protected RandomizedMaze(int width, int height, long seed, String algorithm) {
+        super(width, height);
+        this.seed = seed;
+        this.algorithm = algorithm;
+        rnd = createGenerator(seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the storage of its nodes, and seeds
+     * it using the specified algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @param  storage the storage of the nodes
+     * @throws IllegalArgumentException if width or height is not positive, if
+     *         the size of the storage is not width * height or if the
+     *         algorithm is unknown
+     * @throws NullPointerException if algorithm or storage is null
+     */
+    protected RandomizedMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, storage);
+        this.seed = seed;
+        this.algorithm = algorithm;
+        rnd = createGenerator(seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator. The
+     * generated mazes are reproducible only if the generator is.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    protected RandomizedMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height);
+        if (rnd == null) {
+            throw new NullPointerException();
+        }
+        this.seed = 0;
+        this.algorithm = null;
+        this.rnd = rnd;
+    }
+
+    /**
+     * Sets the dimensions of the maze, the storage of its nodes and the random
+     * number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @param  storage the storage of the nodes
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the size of the storage is not width * height
+     * @throws NullPointerException if rnd or storage is null
+     */
+    protected RandomizedMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, storage);
+        if (rnd == null) {
+            throw new NullPointerException();
+        }
+        this.seed = 0;
+        this.algorithm = null;
+        this.rnd = rnd;
+    }
+
+    /**
+     * Creates a random number generator.
+     *
+     * @param  seed the seed
+     * @param  algorithm the name of the algorithm
+     * @return the random number generator
+     * @throws IllegalArgumentException if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public static RandomGenerator createGenerator(long seed, String algorithm) {
+        return RandomGeneratorFactory.of(algorithm).create(seed);
+    }
+
+    /** Returns a new random seed. */
+    public static long newSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /** Returns true if the maze is reproducible from its seed. */
+    public boolean isSeeded() {
+        return algorithm != null;
+    }
+
+    /**
+     * Returns true if generating the maze again from its seed, with a maze
+     * created by its {@link MazeGenerator}, reproduces its walls: the maze is
+     * seeded, was generated with the default settings and its walls have not
+     * changed since.
+     */
+    public boolean isReproducible() {
+        return reproducible && generatedModCount == getModCount();
+    }
+
+    /**
+     * Returns the seed of the maze.
+     *
+     * @throws IllegalStateException if the maze is not seeded
+     */
+    public long getSeed() {
+        if (!isSeeded()) {
+            throw new IllegalStateException("Maze is not seeded");
+        }
+        return seed;
+    }
+
+    /**
+     * Returns the random number generator algorithm of the maze, or null if
+     * the maze is not seeded.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the number of nodes, for algorithms that index nodes with int
+     * arrays.
+     *
+     * @throws IllegalStateException if the maze has more than
+     *         {@code Integer.MAX_VALUE} nodes
+     */
+    protected int checkedSize() {
+        if (getSize() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Maze is too large for " + getClass().getSimpleName());
+        }
+        return (int) getSize();
+    }
+
+    /**
+     * Returns the random number generator. This is the generator created from
+     * the seed at construction time until {@link #newGenerationRandom()} is
+     * called.
+     */
+    protected RandomGenerator getRandom() {
+        if (rnd == null) {
+            /* The caller supplied generator does not survive serialization. */
+            rnd = isSeeded() ? createGenerator(seed, algorithm) : RandomGenerator.getDefault();
+        }
+        return rnd;
+    }
+
+    /**
+     * Returns the random number generator to be used for a generation pass.
+     * Seeded mazes get a generator restarted from the seed; unseeded mazes keep
+     * drawing from the supplied generator.
+     */
+    protected RandomGenerator newGenerationRandom() {
+        if (isSeeded()) {
+            rnd = createGenerator(seed, algorithm);
+        }
+        return getRandom();
+    }
+
+    /**
+     * Marks the end of a generation pass; call it once the walls are carved.
+     * The walls carved during the pass are counted here, once, in the
+     * {@link #getModCount() mod count}.
+     */
+    protected void markGenerated() {
+        wallsChanged();
+        reproducible = isSeeded() && hasDefaultSettings();
+        generatedModCount = getModCount();
+    }
+
+    /**
+     * Returns true if the settings that shape the maze are those of a maze
+     * created by its {@link MazeGenerator}. Subclasses with settings override
+     * it; it is only called on seeded mazes.
+     */
+    protected boolean hasDefaultSettings() {
+        return true;
+    }
+}
@@ -1,6 +1,6 @@
 package maze;
 
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 import coords.Node;
 import coords.Point;
@@ -9,14 +9,14 @@ import coords.Point;
  * Implements the recursive backtracking algorithm. The algorithm works by
  * exploring unvisited nodes using randomized depth-first search.
  */
-public class RecursiveBacktracker extends Maze {
+public class RecursiveBacktracker extends RandomizedMaze {
     private static final long serialVersionUID = -5689416515127359434L;
 
-    private final Random rnd;
     private final Node start;
+    private boolean customStart; // The caller chose the start rather than the seed
 
     /**
-     * Sets the dimensions of the maze.
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
      *
      * @param  width the width of the maze
      * @param  height the height of the maze
@@ -24,8 +24,81 @@ public class RecursiveBacktracker extends Maze {
      */
     public RecursiveBacktracker(int width, int height) {
         super(width, height);
-        rnd = new Random();
-        start = new Node(rnd.nextInt(width), rnd.nextInt(height));
+        start = randomStart();
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm. Mazes with the same dimensions and seed are identical.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public RecursiveBacktracker(int width, int height, long seed) {
+        super(width, height, seed);
+        start = randomStart();
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm. Mazes with the same dimensions, seed and algorithm are
+     * identical.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public RecursiveBacktracker(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+        start = randomStart();
+    }
+
+    /**
+     * Sets the dimensions of the maze and the storage of its nodes, and seeds
+     * it using the default algorithm. This allows mazes that are larger than
+     * the heap allows.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  storage the storage of the nodes
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the size of the storage is not width * height
+     * @throws NullPointerException if storage is null
+     */
+    public RecursiveBacktracker(int width, int height, long seed, CellStorage storage) {
+        super(width, height, seed, DEFAULT_ALGORITHM, storage);
+        start = randomStart();
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public RecursiveBacktracker(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+        start = randomStart();
+    }
+
+    RecursiveBacktracker(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+        start = randomStart();
+    }
+
+    RecursiveBacktracker(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+        start = randomStart();
     }
 
     /**
@@ -43,7 +116,7 @@ public class RecursiveBacktracker extends Maze {
         super(width, height);
         checkBounds(startX, startY);
         start = new Node(startX, startY);
-        rnd = new Random();
+        customStart = true;
     }
 
     /**
@@ -71,6 +144,7 @@ public class RecursiveBacktracker extends Maze {
     public void setStart(int x, int y) {
         checkBounds(x, y);
         start.set(x, y);
+        customStart = true;
     }
 
     /**
@@ -92,13 +166,24 @@ public class RecursiveBacktracker extends Maze {
     @Override
     public void generate() {
         fill();
-        recursiveBacktrack(start);
+        recursiveBacktrack(start, newGenerationRandom());
+        markGenerated();
+    }
+
+    @Override
+    protected boolean hasDefaultSettings() {
+        return !customStart;
+    }
+
+    private Node randomStart() {
+        RandomGenerator rnd = getRandom();
+        return new Node(rnd.nextInt(getWidth()), rnd.nextInt(getHeight()));
     }
 
-    private void recursiveBacktrack(Node start) {
+    private void recursiveBacktrack(Node start, RandomGenerator rnd) {
         Direction[] directions = Direction.values();
         Direction[] moves = new Direction[4];
-        int unvisited = getWidth() * getHeight() - 1;
+        long unvisited = getSize() - 1;
 
         Node current = new Node(start);
 
@@ -116,7 +201,7 @@ public class RecursiveBacktracker extends Maze {
 
             /* Picks a random adjacent unvisited node and adds it to the maze. */
             Direction d = moves[rnd.nextInt(moveCount)];
-            removeWall(current, d);
+            carveWall(current.getX(), current.getY(), d);
 
             /* Updates the current node to the newly added node. */
             current.translate(d.dx, d.dy);
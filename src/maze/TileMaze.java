@@ -2,17 +2,33 @@ package maze;
 
 
 import java.io.Serializable;
+import java.util.Objects;
 
 import coords.Point;
 import controller.OutOfBoundsException;
 
-/** Tile maze wrapper for {@link Maze}. */
+/**
+ * Tile maze wrapper for {@link Maze}.
+ * <p>
+ * By default every query is worked out from the walls of the maze. A tile maze
+ * can instead be {@link #setMaterialized materialized}: the tile grid is then
+ * kept as a bitset of one bit per tile, each row starting on a new
+ * {@code long}, which makes {@link #isWall(int, int)} a single word lookup and
+ * lets {@link #readRow} copy a row a word at a time. The bitset is rebuilt on
+ * the next query after the walls of the maze change.
+ */
 public class TileMaze implements Serializable {
     private static final long serialVersionUID = -5050221133107186563L;
 
     private Maze maze;
     private int width;
     private int height;
+    private int wordsPerRow;
+    private boolean materialized;
+
+    /* The materialized tile grid and the maze modification count it was built at. */
+    private transient long[] bits;
+    private transient int bitsModCount;
 
     /**
      * Creates a tile maze wrapper around the specified {@link Maze} object.
@@ -28,6 +44,8 @@ public class TileMaze implements Serializable {
      * Wraps this around the specified {@link Maze} object.
      *
      * @param  maze the {@link Maze} object to be wrapped
+     * @throws IllegalStateException if the tile maze is materialized and the
+     *         tile grid of maze is too large to be materialized
      * @throws NullPointerException if maze is null
      */
     public void setMaze(Maze maze) {
@@ -37,6 +55,9 @@ public class TileMaze implements Serializable {
         this.maze = maze;
         width = 2 * maze.getWidth() + 1;
         height = 2 * maze.getHeight() + 1;
+        wordsPerRow = (width + 63) >>> 6;
+        bits = null;
+        setMaterialized(materialized);
     }
 
     /** Returns the internal {@link Maze} object. */
@@ -59,6 +80,129 @@ public class TileMaze implements Serializable {
         return height;
     }
 
+    /** Returns the number of {@code long} words that hold a row of tiles. */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /** Returns true if the tile grid is materialized as a bitset. */
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    /**
+     * Sets whether the tile grid is materialized as a bitset. A materialized
+     * grid takes one bit per tile, (2w + 1) * (2h + 1) bits for a w * h maze.
+     *
+     * @param  materialized true to materialize the tile grid
+     * @throws IllegalStateException if the grid has more than
+     *         2<sup>31</sup> - 1 words
+     */
+    public void setMaterialized(boolean materialized) {
+        if (materialized && (long) wordsPerRow * height > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Tile grid is too large to be materialized");
+        }
+        this.materialized = materialized;
+        if (!materialized) {
+            bits = null;
+        }
+    }
+
+    /** Returns the bitset, rebuilding it if the maze changed since it was built. */
+    private long[] bits() {
+        if (bits == null || bitsModCount != maze.getModCount()) {
+            long[] grid = (bits != null) ? bits : new long[wordsPerRow * height];
+            byte[] nodes = new byte[maze.getWidth()];
+            for (int y = 0; y < height; ++y) {
+                buildRow(y, nodes, grid, y * wordsPerRow);
+            }
+            bits = grid;
+            bitsModCount = maze.getModCount();
+        }
+        return bits;
+    }
+
+    /**
+     * Computes the words of a row of tiles from a row of nodes. Even rows of
+     * tiles are the walls between rows of nodes; odd rows cross the nodes.
+     */
+    private void buildRow(int y, byte[] nodes, long[] dst, int off) {
+        for (int i = 0; i < wordsPerRow; ++i) {
+            dst[off + i] = 0;
+        }
+        int nodeWidth = maze.getWidth();
+        if ((y & 1) == 0) {
+            /* Corners are walls; the tiles between them are north or south walls. */
+            boolean top = (y == 0);
+            maze.readRow(top ? 0 : y / 2 - 1, nodes, 0);
+            int mask = top ? Direction.NORTH.mask : Direction.SOUTH.mask;
+            dst[off] = 1;
+            for (int x = 0; x < nodeWidth; ++x) {
+                int t = 2 * x + 1;
+                dst[off + (t >>> 6)] |= (long) ((nodes[x] & mask) != 0 ? 1 : 0) << t;
+                dst[off + ((t + 1) >>> 6)] |= 1L << (t + 1);
+            }
+        } else {
+            maze.readRow(y / 2, nodes, 0);
+            dst[off] = (nodes[0] & Direction.WEST.mask) != 0 ? 1 : 0;
+            for (int x = 0; x < nodeWidth; ++x) {
+                int t = 2 * x + 2;
+                dst[off + (t >>> 6)] |= (long) ((nodes[x] & Direction.EAST.mask) != 0 ? 1 : 0) << t;
+            }
+        }
+    }
+
+    /**
+     * Copies a row of tiles into an array of words, one bit per tile. Tile x
+     * is bit {@code x % 64} of word {@code off + x / 64}, set if the tile is a
+     * wall. Bits past the last tile are zero.
+     *
+     * @param  y the y-coordinate of the row
+     * @param  dst the array to copy into
+     * @param  off the index in dst of the first word of the row
+     * @throws OutOfBoundsException if y is out of bounds
+     * @throws IndexOutOfBoundsException if dst cannot hold
+     *         {@link #getWordsPerRow()} words at off
+     * @throws NullPointerException if dst is null
+     */
+    public void readRow(int y, long[] dst, int off) {
+        checkBounds(0, y);
+        Objects.checkFromIndexSize(off, wordsPerRow, dst.length);
+        if (materialized) {
+            System.arraycopy(bits(), y * wordsPerRow, dst, off, wordsPerRow);
+        } else {
+            buildRow(y, new byte[maze.getWidth()], dst, off);
+        }
+    }
+
+    /**
+     * Visits every wall tile in row-major order.
+     *
+     * @param  visitor the visitor, called with the coordinates of each wall tile
+     * @throws NullPointerException if visitor is null
+     */
+    public void forEachWall(TileVisitor visitor) {
+        long[] row = materialized ? null : new long[wordsPerRow];
+        byte[] nodes = materialized ? null : new byte[maze.getWidth()];
+        for (int y = 0; y < height; ++y) {
+            long[] words = row;
+            int off = 0;
+            if (materialized) {
+                words = bits();
+                off = y * wordsPerRow;
+            } else {
+                buildRow(y, nodes, row, 0);
+            }
+            for (int i = 0; i < wordsPerRow; ++i) {
+                long word = words[off + i];
+                while (word != 0) {
+                    visitor.visit((i << 6) + Long.numberOfTrailingZeros(word), y);
+                    word &= word - 1;
+                }
+            }
+        }
+    }
+
     /**
      * Checks if the tile at the specified coordinates is a wall.
      *
@@ -69,22 +213,27 @@ public class TileMaze implements Serializable {
      */
     public boolean isWall(int x, int y) {
         checkBounds(x, y);
+        if (materialized) {
+            /* The shift uses the low six bits of x. */
+            return (bits()[y * wordsPerRow + (x >>> 6)] >>> x & 1) != 0;
+        }
         boolean xIsEven = (x % 2 == 0);
         boolean yIsEven = (y % 2 == 0);
         if (xIsEven && yIsEven) {
             return true;
         }
+        /* The tile is in bounds, so the node is too. */
         if (x == 0) {
-            return maze.isWall(0, (y - 1) / 2, Direction.WEST);
+            return (maze.walls(0, (y - 1) / 2) & Direction.WEST.mask) != 0;
         }
         if (y == 0) {
-            return maze.isWall((x - 1) / 2, 0, Direction.NORTH);
+            return (maze.walls((x - 1) / 2, 0) & Direction.NORTH.mask) != 0;
         }
         if (xIsEven) {
-            return maze.isWall((x - 1) / 2, (y - 1) / 2, Direction.EAST);
+            return (maze.walls((x - 1) / 2, (y - 1) / 2) & Direction.EAST.mask) != 0;
         }
         if (yIsEven) {
-            return maze.isWall((x - 1) / 2, (y - 1) / 2, Direction.SOUTH);
+            return (maze.walls((x - 1) / 2, (y - 1) / 2) & Direction.SOUTH.mask) != 0;
         }
         return false;
     }
@@ -109,19 +258,7 @@ public class TileMaze implements Serializable {
 
     @Override
     public String toString() {
-        String lineSeparator = System.getProperty("line.separator");
-        StringBuilder builder = new StringBuilder();
-        for (int y = 0; y < height; ++y) {
-            for (int x = 0; x < width; ++x) {
-                if (isWall(x, y)) {
-                    builder.append("# ");
-                } else {
-                    builder.append("  ");
-                }
-            }
-            builder.append(lineSeparator);
-        }
-        return builder.toString();
+        return MazeExporter.toTileText(this);
     }
 }
 
@@ -0,0 +1,13 @@
+package maze;
+
+/** Receives the wall tiles of a {@link TileMaze} during a bulk scan. */
+@FunctionalInterface
+public interface TileVisitor {
+    /**
+     * Visits a wall tile.
+     *
+     * @param x the x-coordinate of the tile
+     * @param y the y-coordinate of the tile
+     */
+    void visit(int x, int y);
+}
@@ -0,0 +1,125 @@
+package maze;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Implements Wilson's algorithm, which generates a uniformly random spanning
+ * tree. Loop-erased random walks are started from every node that is not yet
+ * in the maze and added to the maze once they reach it. The walk direction of
+ * each node is kept in the node's flag bits, so no other memory is needed.
+ * The first walk has to find a single node, which makes the algorithm slow to
+ * start on large grids.
+ */
+public class WilsonMaze extends RandomizedMaze {
+    private static final long serialVersionUID = 7713468941052447062L;
+
+    /* Flag bit of nodes in the maze; the low two bits hold a walk direction. */
+    private static final int IN = 4;
+
+    /**
+     * Sets the dimensions of the maze. The maze is seeded with a random seed.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public WilsonMaze(int width, int height) {
+        super(width, height);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the default
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @throws IllegalArgumentException if width or height is not positive
+     */
+    public WilsonMaze(int width, int height, long seed) {
+        super(width, height, seed);
+    }
+
+    /**
+     * Sets the dimensions of the maze and seeds it using the specified
+     * algorithm.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  seed the seed
+     * @param  algorithm the name of the random number generator algorithm
+     * @throws IllegalArgumentException if width or height is not positive or
+     *         if the algorithm is unknown
+     * @throws NullPointerException if algorithm is null
+     */
+    public WilsonMaze(int width, int height, long seed, String algorithm) {
+        super(width, height, seed, algorithm);
+    }
+
+    /**
+     * Sets the dimensions of the maze and the random number generator.
+     *
+     * @param  width the width of the maze
+     * @param  height the height of the maze
+     * @param  rnd the random number generator
+     * @throws IllegalArgumentException if width or height is not positive
+     * @throws NullPointerException if rnd is null
+     */
+    public WilsonMaze(int width, int height, RandomGenerator rnd) {
+        super(width, height, rnd);
+    }
+
+    WilsonMaze(int width, int height, long seed, String algorithm, CellStorage storage) {
+        super(width, height, seed, algorithm, storage);
+    }
+
+    WilsonMaze(int width, int height, RandomGenerator rnd, CellStorage storage) {
+        super(width, height, rnd, storage);
+    }
+
+    @Override
+    public void generate() {
+        RandomGenerator rnd = newGenerationRandom();
+        int width = getWidth();
+        int nodes = checkedSize();
+        Direction[] directions = Direction.values();
+        fill();
+
+        int root = rnd.nextInt(nodes);
+        setFlags(root % width, root / width, IN);
+
+        for (int i = 0; i < nodes; ++i) {
+            int sx = i % width;
+            int sy = i / width;
+            if (getFlags(sx, sy) == IN) {
+                continue;
+            }
+
+            /* Walks randomly until the maze is reached, remembering the last
+             * direction taken from each node, which erases loops. */
+            int x = sx;
+            int y = sy;
+            while (getFlags(x, y) != IN) {
+                Direction d;
+                do {
+                    d = directions[rnd.nextInt(4)];
+                } while (!isInBounds(x + d.dx, y + d.dy));
+                setFlags(x, y, d.ordinal());
+                x += d.dx;
+                y += d.dy;
+            }
+
+            /* Adds the loop-erased walk to the maze. */
+            x = sx;
+            y = sy;
+            while (getFlags(x, y) != IN) {
+                Direction d = directions[getFlags(x, y)];
+                carveWall(x, y, d);
+                setFlags(x, y, IN);
+                x += d.dx;
+                y += d.dy;
+            }
+        }
+        markGenerated();
+    }
+}
@@ -0,0 +1,157 @@
+package perf;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A histogram of non-negative long values in a fixed set of buckets. Values
+ * below 64 have a bucket each; larger values share buckets that grow with
+ * their magnitude, 32 per power of two, so every value is known to within
+ * about 3 percent. Recording is a few shifts and an increment and never
+ * allocates, so it can be done on every frame.
+ * <p>
+ * A histogram is meant to be recorded by one thread at a time. Other threads
+ * may read it while it is recorded, but may miss the last few values.
+ */
+public class Histogram {
+    /* Values below 1 << SUB_BITS are exact; larger values keep SUB_BITS significant bits. */
+    private static final int SUB_BITS = 6;
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private static final int BUCKETS = (63 - SUB_BITS + 1) * HALF + HALF;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Records a value.
+     *
+     * @param  value the value
+     * @throws IllegalArgumentException if value is negative
+     */
+    public void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative");
+        }
+        ++counts[index(value)];
+        ++count;
+        total += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram, as if they were
+     * recorded here.
+     *
+     * @param  other the other histogram
+     * @throws NullPointerException if other is null
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /** Returns the number of values recorded. */
+    public long getCount() {
+        return count;
+    }
+
+    /** Returns the smallest value recorded, or 0 if there is none. */
+    public long getMin() {
+        return (count == 0) ? 0 : min;
+    }
+
+    /** Returns the largest value recorded, or 0 if there is none. */
+    public long getMax() {
+        return max;
+    }
+
+    /** Returns the mean of the values recorded, or 0 if there is none. */
+    public double getMean() {
+        return (count == 0) ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the value at a percentile: the largest value that falls into
+     * the same bucket as the value below which the given percentage of the
+     * values lie.
+     *
+     * @param  percentile the percentile, from 0 to 100
+     * @return the value, or 0 if no values were recorded
+     * @throws IllegalArgumentException if percentile is not within [0, 100]
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be within [0, 100]");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    /** Forgets all values recorded. */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Writes the count, mean, maximum and a line of percentiles, with every
+     * value divided by a unit.
+     *
+     * @param  out where to append the text
+     * @param  name the name of the line
+     * @param  unit the value of one unit, such as 1000000 for milliseconds from nanoseconds
+     * @param  unitName the name of the unit
+     * @throws IOException if the text cannot be appended
+     */
+    public void writePercentiles(Appendable out, String name, double unit, String unitName) throws IOException {
+        out.append(String.format("%-16s count %8d  mean %10.3f  p50 %10.3f  p90 %10.3f  p99 %10.3f"
+                + "  p99.9 %10.3f  max %10.3f %s%n",
+                name, count, getMean() / unit, getValueAtPercentile(50) / unit, getValueAtPercentile(90) / unit,
+                getValueAtPercentile(99) / unit, getValueAtPercentile(99.9) / unit, max / unit, unitName));
+    }
+
+    /** Returns the bucket of a value. */
+    private static int index(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /** Returns the largest value in a bucket. */
+    private static long highestValue(int index) {
+        if (index < 2 * HALF) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long lowest = (long) (index - shift * HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
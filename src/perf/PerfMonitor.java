@@ -0,0 +1,200 @@
+package perf;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Records what the game costs at runtime: the time and the memory allocated
+ * per paint, the time to handle a move, the time from a key press to the end
+ * of the next paint, and the time to generate a maze. Garbage collections
+ * are read from the JVM when asked for.
+ * <p>
+ * Paints are timed with {@link #beginPaint()} and {@link #endPaint(long)},
+ * which must be called by one thread at a time. Input may be reported from
+ * any thread.
+ */
+public class PerfMonitor {
+    private static final double MILLIS = 1e6;
+
+    private final Histogram paintTime = new Histogram();
+    private final Histogram paintAllocation = new Histogram();
+    private final Histogram moveTime = new Histogram();
+    private final Histogram inputLatency = new Histogram();
+    private final Histogram generationTime = new Histogram();
+
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private long allocationStart;
+    private volatile long frames;
+    private volatile long inputNanos; // 0 while no key press waits for a paint
+
+    /** Creates a monitor. */
+    public PerfMonitor() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean) threads;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            /* Not a HotSpot JVM; allocations are not counted. */
+            allocationBean = null;
+        }
+    }
+
+    /**
+     * Marks the start of a paint.
+     *
+     * @return the start time, to pass to {@link #endPaint(long)}
+     */
+    public long beginPaint() {
+        if (allocationBean != null) {
+            allocationStart = allocationBean.getCurrentThreadAllocatedBytes();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a paint. If a key was pressed since the last paint, the
+     * time since the key press is recorded as input latency.
+     *
+     * @param start the start time returned by {@link #beginPaint()}
+     */
+    public void endPaint(long start) {
+        long now = System.nanoTime();
+        paintTime.record(now - start);
+        if (allocationBean != null) {
+            paintAllocation.record(Math.max(0, allocationBean.getCurrentThreadAllocatedBytes() - allocationStart));
+        }
+        ++frames;
+
+        long input = inputNanos;
+        if (input != 0) {
+            inputLatency.record(Math.max(0, now - input));
+            inputNanos = 0;
+        }
+    }
+
+    /** Marks a key press, unless an earlier one still waits for a paint. */
+    public void inputReceived() {
+        inputReceived(System.nanoTime());
+    }
+
+    /**
+     * Marks a key press made at an earlier time, such as when it was queued,
+     * unless an earlier one still waits for a paint.
+     *
+     * @param nanos the {@link System#nanoTime()} of the key press
+     */
+    public void inputReceived(long nanos) {
+        if (inputNanos == 0) {
+            inputNanos = nanos | 1;
+        }
+    }
+
+    /**
+     * Records the time to handle a move, or the moves of one game tick.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void recordMove(long nanos) {
+        moveTime.record(Math.max(0, nanos));
+    }
+
+    /**
+     * Records the time to generate a maze.
+     *
+     * @param nanos the time in nanoseconds
+     */
+    public void recordGeneration(long nanos) {
+        generationTime.record(Math.max(0, nanos));
+    }
+
+    /** Returns the number of paints so far. */
+    public long getFrames() {
+        return frames;
+    }
+
+    /** Returns the paint times in nanoseconds. */
+    public Histogram getPaintTime() {
+        return paintTime;
+    }
+
+    /** Returns the bytes allocated per paint; empty if allocations are not counted. */
+    public Histogram getPaintAllocation() {
+        return paintAllocation;
+    }
+
+    /** Returns the move handling times in nanoseconds. */
+    public Histogram getMoveTime() {
+        return moveTime;
+    }
+
+    /** Returns the times from a key press to the end of the next paint in nanoseconds. */
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /** Returns the maze generation times in nanoseconds. */
+    public Histogram getGenerationTime() {
+        return generationTime;
+    }
+
+    /** Returns the number of garbage collections since the JVM started. */
+    public long getCollectionCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+
+    /** Returns the time spent in garbage collection since the JVM started, in milliseconds. */
+    public long getCollectionTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Writes the percentiles of every histogram and the garbage collection
+     * totals.
+     *
+     * @param  out where to append the report
+     * @throws IOException if the report cannot be appended
+     */
+    public void writeReport(Appendable out) throws IOException {
+        paintTime.writePercentiles(out, "paint", MILLIS, "ms");
+        if (allocationBean != null) {
+            paintAllocation.writePercentiles(out, "paint alloc", 1024, "KiB");
+        }
+        moveTime.writePercentiles(out, "move", MILLIS, "ms");
+        inputLatency.writePercentiles(out, "input latency", MILLIS, "ms");
+        generationTime.writePercentiles(out, "generation", MILLIS, "ms");
+        out.append(String.format("gc               count %8d  time %d ms%n", getCollectionCount(), getCollectionTime()));
+    }
+
+    /**
+     * Writes the report to a file when the JVM exits.
+     *
+     * @param file the file, which is replaced
+     */
+    public void writeReportOnExit(Path file) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writeReport(out);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "Perf Report"));
+    }
+}
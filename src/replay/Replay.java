@@ -0,0 +1,365 @@
+package replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import maze.Direction;
+import maze.Maze;
+import maze.MazeFormat;
+import maze.MazeGenerator;
+import maze.RandomizedMaze;
+
+/**
+ * A recorded game: the maze, the placement of the start and the goal, and
+ * every move made, with its time and whether it hit a wall. Replaying the
+ * moves on a {@link game.GameEngine} plays the game again.
+ * <p>
+ * Replays are stored in a compact binary format that is read in one go. All
+ * numbers but the seed are unsigned varints: seven bits per byte, low bits
+ * first, the high bit set on every byte but the last.
+ * <pre>
+ * magic "IMRP", 4 bytes
+ * version, 1 byte
+ * width, height
+ * generator id ({@link MazeGenerator#id}), 0 if the maze is stored as walls
+ *   id &gt; 0: seed (8 bytes, big-endian), algorithm name length, name in US-ASCII;
+ *     only used if the maze {@link RandomizedMaze#isReproducible() is reproducible}
+ *   id = 0: the wall plane of {@link MazeFormat#toPlane(Maze)}
+ * startX, startY, goalX, goalY, hearts, round, game
+ * flags, 1 byte: bit 0 set if player A played first, bit 1 if it was practice
+ * number of moves
+ * moves: (milliseconds since the last move &lt;&lt; 3) | (hit &lt;&lt; 2) | direction ordinal
+ * </pre>
+ * A move of a player a few hundred milliseconds after the last takes two
+ * bytes, so a whole game takes a few hundred bytes at most when the maze can
+ * be generated again from its seed.
+ */
+public final class Replay {
+    /** The current version of the format. */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = ('I' << 24) | ('M' << 16) | ('R' << 8) | 'P';
+    private static final int FLAG_PLAYER_A_FIRST = 1;
+    private static final int FLAG_PRACTICE = 2;
+    private static final int HIT = 1 << 2;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Maze maze;
+    private final int startX, startY, goalX, goalY;
+    private final int hearts;
+    private final int round;
+    private final int game;
+    private final boolean playerAFirst;
+    private final boolean practice;
+    private final byte[] moves; // Direction ordinal, with HIT set for wall hits
+    private final long[] times; // Milliseconds since the game started, never decreasing
+
+    Replay(Maze maze, int startX, int startY, int goalX, int goalY, int hearts, int round, int game,
+            boolean playerAFirst, boolean practice, byte[] moves, long[] times) {
+        this.maze = maze;
+        this.startX = startX;
+        this.startY = startY;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.hearts = hearts;
+        this.round = round;
+        this.game = game;
+        this.playerAFirst = playerAFirst;
+        this.practice = practice;
+        this.moves = moves;
+        this.times = times;
+    }
+
+    /** Returns the maze of the game. */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /** Returns the x-coordinate of the start. */
+    public int getStartX() {
+        return startX;
+    }
+
+    /** Returns the y-coordinate of the start. */
+    public int getStartY() {
+        return startY;
+    }
+
+    /** Returns the x-coordinate of the goal. */
+    public int getGoalX() {
+        return goalX;
+    }
+
+    /** Returns the y-coordinate of the goal. */
+    public int getGoalY() {
+        return goalY;
+    }
+
+    /** Returns the hearts each player started with. */
+    public int getHearts() {
+        return hearts;
+    }
+
+    /** Returns the round of the match the game was played in. */
+    public int getRound() {
+        return round;
+    }
+
+    /** Returns the number of the game within its match, from 1. */
+    public int getGame() {
+        return game;
+    }
+
+    /** Returns true if player A played first. */
+    public boolean isPlayerAFirst() {
+        return playerAFirst;
+    }
+
+    /** Returns true if the game was a practice game. */
+    public boolean isPractice() {
+        return practice;
+    }
+
+    /** Returns the number of moves. */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Returns the direction of a move.
+     *
+     * @param  move the index of the move
+     * @return the direction
+     * @throws IndexOutOfBoundsException if there is no such move
+     */
+    public Direction getDirection(int move) {
+        return DIRECTIONS[moves[move] & ~HIT];
+    }
+
+    /**
+     * Returns true if a move hit a wall.
+     *
+     * @param  move the index of the move
+     * @return true if the move hit a wall
+     * @throws IndexOutOfBoundsException if there is no such move
+     */
+    public boolean isHit(int move) {
+        return (moves[move] & HIT) != 0;
+    }
+
+    /**
+     * Returns the time of a move.
+     *
+     * @param  move the index of the move
+     * @return the milliseconds since the game started
+     * @throws IndexOutOfBoundsException if there is no such move
+     */
+    public long getTime(int move) {
+        return times[move];
+    }
+
+    /** Returns the milliseconds from the start of the game to the last move. */
+    public long getDuration() {
+        return (times.length == 0) ? 0 : times[times.length - 1];
+    }
+
+    /**
+     * Writes the replay to a file, replacing the file if it exists.
+     *
+     * @param  file the file
+     * @throws IOException if the file cannot be written
+     * @throws NullPointerException if file is null
+     */
+    public void write(Path file) throws IOException {
+        Files.write(file, toBytes());
+    }
+
+    /**
+     * Writes the replay to a stream.
+     *
+     * @param  out the stream
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if out is null
+     */
+    public void write(OutputStream out) throws IOException {
+        out.write(toBytes());
+    }
+
+    /** Returns the replay in its binary format. */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + 2 * moves.length);
+        out.write(MAGIC >>> 24);
+        out.write(MAGIC >>> 16);
+        out.write(MAGIC >>> 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarint(out, maze.getWidth());
+        writeVarint(out, maze.getHeight());
+
+        MazeGenerator generator = MazeGenerator.of(maze);
+        if (generator != null && ((RandomizedMaze) maze).isReproducible()) {
+            RandomizedMaze randomized = (RandomizedMaze) maze;
+            writeVarint(out, generator.id);
+            long seed = randomized.getSeed();
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (seed >>> shift));
+            }
+            byte[] name = randomized.getAlgorithm().getBytes(StandardCharsets.US_ASCII);
+            writeVarint(out, name.length);
+            out.write(name, 0, name.length);
+        } else {
+            writeVarint(out, 0);
+            byte[] plane = MazeFormat.toPlane(maze);
+            out.write(plane, 0, plane.length);
+        }
+
+        writeVarint(out, startX);
+        writeVarint(out, startY);
+        writeVarint(out, goalX);
+        writeVarint(out, goalY);
+        writeVarint(out, hearts);
+        writeVarint(out, round);
+        writeVarint(out, game);
+        out.write((playerAFirst ? FLAG_PLAYER_A_FIRST : 0) | (practice ? FLAG_PRACTICE : 0));
+
+        writeVarint(out, moves.length);
+        long last = 0;
+        for (int i = 0; i < moves.length; ++i) {
+            writeVarint(out, ((times[i] - last) << 3) | moves[i]);
+            last = times[i];
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads a replay from a file with a single read.
+     *
+     * @param  file the file
+     * @return the replay
+     * @throws IOException if the file cannot be read or is not a valid replay
+     * @throws NullPointerException if file is null
+     */
+    public static Replay read(Path file) throws IOException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Reads a replay from a buffer, starting at its position. A seeded maze
+     * is generated again.
+     *
+     * @param  buffer the buffer
+     * @return the replay
+     * @throws IOException if the buffer does not hold a valid replay
+     * @throws NullPointerException if buffer is null
+     */
+    public static Replay read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a replay file");
+            }
+            int version = buffer.get() & 0xff;
+            if (version != VERSION) {
+                throw new IOException("Unsupported replay file version: " + version);
+            }
+            int width = readInt(buffer);
+            int height = readInt(buffer);
+            if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt replay file: bad maze size " + width + "x" + height);
+            }
+
+            Maze maze;
+            int generatorId = readInt(buffer);
+            try {
+                if (generatorId != 0) {
+                    long seed = buffer.getLong();
+                    byte[] name = new byte[readInt(buffer)];
+                    buffer.get(name);
+                    maze = MazeGenerator.forId(generatorId).create(width, height, seed,
+                            new String(name, StandardCharsets.US_ASCII));
+                    maze.generate();
+                } else {
+                    long planeSize = ((long) width * height + 1) >>> 1;
+                    if (planeSize > buffer.remaining()) {
+                        throw new EOFException("Truncated replay file");
+                    }
+                    byte[] plane = new byte[(int) planeSize];
+                    buffer.get(plane);
+                    maze = MazeFormat.fromPlane(width, height, plane);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Cannot create maze: " + e.getMessage(), e);
+            }
+
+            int startX = readInt(buffer);
+            int startY = readInt(buffer);
+            int goalX = readInt(buffer);
+            int goalY = readInt(buffer);
+            int hearts = readInt(buffer);
+            int round = readInt(buffer);
+            int game = readInt(buffer);
+            int flags = buffer.get() & 0xff;
+            if (startX >= width || startY >= height || goalX >= width || goalY >= height || hearts == 0) {
+                throw new IOException("Corrupt replay file: bad placement");
+            }
+
+            int count = readInt(buffer);
+            if (count > buffer.remaining()) { // Every move takes at least one byte
+                throw new IOException("Corrupt replay file: too many moves");
+            }
+            byte[] moves = new byte[count];
+            long[] times = new long[count];
+            long time = 0;
+            for (int i = 0; i < count; ++i) {
+                long value = readVarint(buffer);
+                moves[i] = (byte) (value & 7);
+                time += value >>> 3;
+                times[i] = time;
+            }
+            return new Replay(maze, startX, startY, goalX, goalY, hearts, round, game,
+                    (flags & FLAG_PLAYER_A_FIRST) != 0, (flags & FLAG_PRACTICE) != 0, moves, times);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated replay file");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Replay[" + maze.getWidth() + "x" + maze.getHeight() + ", round " + round + ", game " + game
+                + ", " + moves.length + " moves in " + getDuration() + " ms]";
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt replay file: varint is too long");
+    }
+
+    private static int readInt(ByteBuffer buffer) throws IOException {
+        long value = readVarint(buffer);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt replay file: number out of range");
+        }
+        return (int) value;
+    }
+}
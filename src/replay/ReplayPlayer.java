@@ -0,0 +1,242 @@
+package replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import game.GameEngine;
+import game.GameListener;
+import maze.Direction;
+
+/**
+ * Plays a replay again on a {@link GameEngine}, which reports every move
+ * through its listener as in the original game. The player can step, seek
+ * to any move or time, back as well as forward, and play the moves at their
+ * recorded pace or any multiple of it. Seeking back replays the game from
+ * the start, which takes microseconds for a game of a few hundred moves.
+ * <p>
+ * Every move is checked against the replay: if the rules of the engine have
+ * changed since the game was recorded, the first move whose result differs
+ * is reported by {@link #getFirstMismatch()}.
+ */
+public class ReplayPlayer {
+    private final Replay replay;
+    private final GameEngine engine = new GameEngine(0); // Never draws a maze; the seed does not matter
+    private int position; // The number of moves played
+    private long clock; // The playback time in milliseconds since the game started
+    private int firstMismatch = -1;
+
+    /**
+     * Creates a player at the start of a replay.
+     *
+     * @param  replay the replay
+     * @throws NullPointerException if replay is null
+     */
+    public ReplayPlayer(Replay replay) {
+        this.replay = replay;
+        engine.setRules(replay.getHearts(), GameEngine.getSize(GameEngine.EASY),
+                GameEngine.getSize(GameEngine.MEDIUM), GameEngine.getSize(GameEngine.HARD));
+        rewind();
+    }
+
+    /**
+     * Sets the listener of the engine, which is told of the game starting
+     * again on every rewind and of every move played.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setListener(GameListener listener) {
+        engine.setListener(listener);
+    }
+
+    /** Returns the replay. */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /** Returns the engine, which holds the state of the game at the current move. */
+    public GameEngine getEngine() {
+        return engine;
+    }
+
+    /** Returns the number of moves played. */
+    public int getPosition() {
+        return position;
+    }
+
+    /** Returns the playback time, in milliseconds since the game started. */
+    public long getTime() {
+        return clock;
+    }
+
+    /** Returns true if every move has been played. */
+    public boolean isFinished() {
+        return position == replay.getMoveCount();
+    }
+
+    /** Returns the first move whose result differed from the replay, or -1 if none did. */
+    public int getFirstMismatch() {
+        return firstMismatch;
+    }
+
+    /** Goes back to the start of the game. */
+    public void rewind() {
+        position = 0;
+        clock = 0;
+        engine.startGame(replay.getMaze(), replay.getStartX(), replay.getStartY(), replay.getGoalX(),
+                replay.getGoalY(), replay.isPlayerAFirst());
+        engine.setMovable(true);
+    }
+
+    /**
+     * Plays the next move.
+     *
+     * @return false if every move has been played
+     */
+    public boolean step() {
+        if (position == replay.getMoveCount()) {
+            return false;
+        }
+        int expected = replay.isHit(position) ? GameEngine.HIT_WALL : GameEngine.MOVED;
+        if (engine.move(replay.getDirection(position)) != expected && firstMismatch < 0) {
+            firstMismatch = position;
+        }
+        clock = Math.max(clock, replay.getTime(position));
+        ++position;
+        return true;
+    }
+
+    /**
+     * Plays or rewinds to a move.
+     *
+     * @param  move the number of moves to have played, from 0 to the number
+     *         of moves in the replay
+     * @throws IndexOutOfBoundsException if move is out of range
+     */
+    public void seek(int move) {
+        if (move < 0 || move > replay.getMoveCount()) {
+            throw new IndexOutOfBoundsException("Move " + move + " of " + replay.getMoveCount());
+        }
+        if (move < position) {
+            rewind();
+        }
+        while (position < move) {
+            step();
+        }
+        clock = (move == 0) ? 0 : replay.getTime(move - 1);
+    }
+
+    /**
+     * Plays or rewinds to a time: every move made up to the time is played.
+     *
+     * @param millis the time in milliseconds since the game started
+     */
+    public void seekTime(long millis) {
+        seek(countMovesUntil(millis));
+        clock = Math.max(0, millis);
+    }
+
+    /**
+     * Moves the playback time forward and plays the moves made until then.
+     * Call it from a timer to play the replay at a speed.
+     *
+     * @param  elapsedMillis the real time passed since the last call
+     * @param  speed the speed, such as 1 for the recorded pace or 100 to
+     *         fast-forward
+     * @return the number of moves played
+     * @throws IllegalArgumentException if speed is negative
+     */
+    public int advance(long elapsedMillis, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("Speed must not be negative");
+        }
+        long target = clock + Math.round(Math.max(0, elapsedMillis) * speed);
+        int played = 0;
+        while (position < replay.getMoveCount() && replay.getTime(position) <= target) {
+            step();
+            ++played;
+        }
+        clock = target;
+        return played;
+    }
+
+    /** Returns the number of moves made at or before a time; the times never decrease. */
+    private int countMovesUntil(long millis) {
+        int low = 0;
+        int high = replay.getMoveCount();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (replay.getTime(middle) <= millis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Plays a replay file. With a speed, the moves are printed as they are
+     * played at that multiple of the recorded pace; without one, or with 0,
+     * the game is simulated again headless as fast as possible.
+     *
+     * @param  args the file and the speed
+     * @throws IOException if the file cannot be read
+     * @throws InterruptedException if interrupted while playing
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: java replay.ReplayPlayer <file> [speed]");
+            System.exit(2);
+        }
+        long readStart = System.nanoTime();
+        Replay replay = Replay.read(Paths.get(args[0]));
+        long readNanos = System.nanoTime() - readStart;
+        double speed = (args.length > 1) ? Double.parseDouble(args[1]) : 0;
+        System.out.printf("%s, %d bytes, read in %.3f ms%n", replay, Files.size(Paths.get(args[0])),
+                readNanos / 1e6);
+
+        ReplayPlayer player = new ReplayPlayer(replay);
+        player.setListener(new GameListener() {
+            @Override
+            public void wallHit(int x, int y, Direction direction, int heartsLeft) {
+                if (speed > 0) {
+                    System.out.printf("%10.3f s  hit the wall %s of (%d, %d), %d hearts left%n",
+                            replay.getTime(player.getPosition()) / 1000.0, direction, x, y, heartsLeft);
+                }
+            }
+
+            @Override
+            public void heartsLost(boolean playerA, boolean handover) {
+                System.out.println("Player " + (playerA ? "A" : "B") + " lost all hearts");
+            }
+
+            @Override
+            public void goalReached(boolean playerA) {
+                System.out.println("Player " + (playerA ? "A" : "B") + " reached the goal");
+            }
+
+            @Override
+            public void gameLost() {
+                System.out.println("Both players lost the game");
+            }
+        });
+
+        long start = System.nanoTime();
+        if (speed > 0) {
+            long last = System.currentTimeMillis();
+            while (!player.isFinished()) {
+                Thread.sleep(10);
+                long now = System.currentTimeMillis();
+                player.advance(now - last, speed);
+                last = now;
+            }
+        } else {
+            player.seek(replay.getMoveCount());
+        }
+        System.out.printf("%d moves played in %.3f ms%n", player.getPosition(), (System.nanoTime() - start) / 1e6);
+        if (player.getFirstMismatch() >= 0) {
+            System.out.println("The rules disagree with the replay from move " + player.getFirstMismatch());
+        }
+    }
+}
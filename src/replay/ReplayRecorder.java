@@ -0,0 +1,122 @@
+package replay;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import game.GameEngine;
+import game.GameListener;
+import maze.Direction;
+
+/**
+ * Records the games of an engine as replays. The recorder learns of moves
+ * from the events of the engine, so it must receive every event: install it
+ * as the listener, or forward the events to it. When a game is over, its
+ * replay is handed to a consumer; a game left unfinished is dropped.
+ * <p>
+ * Recording a move appends two array entries, so it costs no more than the
+ * move itself.
+ */
+public class ReplayRecorder implements GameListener {
+    private static final int HIT = 1 << 2;
+
+    private final GameEngine engine;
+    private final Consumer<Replay> consumer;
+
+    private boolean recording;
+    private boolean sentBack; // The next playerMoved is the player sent back to the start
+    private long startNanos;
+    private int startX, startY, goalX, goalY, hearts, round, game;
+    private boolean playerAFirst;
+    private boolean practice;
+    private byte[] moves = new byte[64];
+    private long[] times = new long[64];
+    private int count;
+
+    /**
+     * Creates a recorder.
+     *
+     * @param  engine the engine whose games are recorded
+     * @param  consumer receives the replay of every game played to the end
+     * @throws NullPointerException if engine or consumer is null
+     */
+    public ReplayRecorder(GameEngine engine, Consumer<Replay> consumer) {
+        if (engine == null || consumer == null) {
+            throw new NullPointerException();
+        }
+        this.engine = engine;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void gameStarted() {
+        recording = true;
+        sentBack = false;
+        startNanos = System.nanoTime();
+        startX = engine.getStartX();
+        startY = engine.getStartY();
+        goalX = engine.getGoalX();
+        goalY = engine.getGoalY();
+        hearts = engine.getHearts();
+        round = engine.getRound();
+        game = engine.getGames() + 1;
+        playerAFirst = engine.isPlayerATurn();
+        practice = engine.isPracticeMode();
+        count = 0;
+    }
+
+    @Override
+    public void playerMoved(int fromX, int fromY, int toX, int toY) {
+        if (sentBack) {
+            sentBack = false;
+            return;
+        }
+        int dx = toX - fromX;
+        int dy = toY - fromY;
+        Direction direction = (dx > 0) ? Direction.EAST : (dx < 0) ? Direction.WEST
+                : (dy > 0) ? Direction.SOUTH : Direction.NORTH;
+        add(direction.ordinal());
+    }
+
+    @Override
+    public void wallHit(int x, int y, Direction direction, int heartsLeft) {
+        add(direction.ordinal() | HIT);
+    }
+
+    @Override
+    public void heartsLost(boolean playerA, boolean handover) {
+        sentBack = true;
+    }
+
+    @Override
+    public void goalReached(boolean playerA) {
+        finish();
+    }
+
+    @Override
+    public void gameLost() {
+        finish();
+    }
+
+    private void add(int move) {
+        if (!recording) {
+            return;
+        }
+        if (count == moves.length) {
+            moves = Arrays.copyOf(moves, 2 * count);
+            times = Arrays.copyOf(times, 2 * count);
+        }
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        moves[count] = (byte) move;
+        times[count] = (count > 0) ? Math.max(times[count - 1], millis) : Math.max(0, millis);
+        ++count;
+    }
+
+    private void finish() {
+        if (!recording) {
+            return;
+        }
+        recording = false;
+        consumer.accept(new Replay(engine.getMaze(), startX, startY, goalX, goalY, hearts, round, game,
+                playerAFirst, practice, Arrays.copyOf(moves, count), Arrays.copyOf(times, count)));
+    }
+}
@@ -0,0 +1,55 @@
+package sim;
+
+import game.GameEngine;
+import maze.Direction;
+
+/**
+ * A strategy that plays the turns of one player. Like a human player, a bot
+ * may read the position of the player, the size of the maze and the walls
+ * that have been hit from the engine, but not the walls of the maze.
+ */
+public interface Bot {
+    /**
+     * The player of the bot starts an attempt at a maze, at its start.
+     *
+     * @param engine the engine
+     */
+    void start(GameEngine engine);
+
+    /**
+     * Returns the move the player makes next.
+     *
+     * @param  engine the engine
+     * @return the direction of the move
+     */
+    Direction nextMove(GameEngine engine);
+
+    /**
+     * Reports the result of the last move. Does nothing by default.
+     *
+     * @param direction the direction of the move
+     * @param result the result of {@link GameEngine#move(Direction)}
+     */
+    default void moved(Direction direction, int result) {
+    }
+
+    /**
+     * Returns true if the player may be able to move from a tile: the move
+     * stays in the maze and the wall in the way has not been hit from either
+     * side.
+     *
+     * @param  engine the engine
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @param  direction the direction of the move
+     * @return true if the wall is not known
+     */
+    static boolean mayMove(GameEngine engine, int x, int y, Direction direction) {
+        int nx = x + direction.dx;
+        int ny = y + direction.dy;
+        if (nx < 0 || nx >= engine.getMaze().getWidth() || ny < 0 || ny >= engine.getMaze().getHeight()) {
+            return false;
+        }
+        return !engine.isHit(x, y, direction) && !engine.isHit(nx, ny, direction.getReverse());
+    }
+}
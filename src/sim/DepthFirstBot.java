@@ -0,0 +1,80 @@
+package sim;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import game.GameEngine;
+import maze.Direction;
+
+/**
+ * Explores the maze depth first and remembers where it has been: it enters a
+ * tile it has not visited whenever a wall in the way is not known to be hit,
+ * and walks back the way it came when there is none. It never enters a tile
+ * twice except to back out of a dead end.
+ */
+public class DepthFirstBot implements Bot {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SplittableRandom random;
+    private boolean[] visited = new boolean[0];
+    private byte[] trail = new byte[0]; // Directions taken to the current tile
+    private int depth;
+    private int width;
+    private int tile; // The tile of the last move asked for
+    private boolean backtracking; // True if the last move returned was a step back
+
+    /**
+     * Creates a bot.
+     *
+     * @param seed the seed of the order in which it tries directions
+     */
+    public DepthFirstBot(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public void start(GameEngine engine) {
+        width = engine.getMaze().getWidth();
+        int tiles = width * engine.getMaze().getHeight();
+        if (visited.length != tiles) {
+            visited = new boolean[tiles];
+            trail = new byte[tiles];
+        } else {
+            Arrays.fill(visited, false);
+        }
+        depth = 0;
+        visited[engine.getPlayerY() * width + engine.getPlayerX()] = true;
+    }
+
+    @Override
+    public Direction nextMove(GameEngine engine) {
+        int x = engine.getPlayerX();
+        int y = engine.getPlayerY();
+        tile = y * width + x;
+        int first = random.nextInt(4);
+        for (int i = 0; i < 4; ++i) {
+            Direction d = DIRECTIONS[(first + i) % 4];
+            if (Bot.mayMove(engine, x, y, d) && !visited[(y + d.dy) * width + x + d.dx]) {
+                backtracking = false;
+                return d;
+            }
+        }
+        backtracking = true;
+        return (depth > 0) ? DIRECTIONS[trail[depth - 1]].getReverse() : DIRECTIONS[first];
+    }
+
+    @Override
+    public void moved(Direction direction, int result) {
+        if (result != GameEngine.MOVED) {
+            return;
+        }
+        if (backtracking) {
+            if (depth > 0) {
+                --depth;
+            }
+        } else {
+            trail[depth++] = (byte) direction.ordinal();
+            visited[tile + direction.dy * width + direction.dx] = true;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package sim;
+
+import java.util.SplittableRandom;
+
+import game.GameEngine;
+import maze.Direction;
+
+/**
+ * Moves in a random direction at every tile, among those where no wall is
+ * known to be hit. It remembers nothing else.
+ */
+public class RandomWalkBot implements Bot {
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final SplittableRandom random;
+    private final Direction[] choices = new Direction[4];
+
+    /**
+     * Creates a bot.
+     *
+     * @param seed the seed of its moves
+     */
+    public RandomWalkBot(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public void start(GameEngine engine) {
+    }
+
+    @Override
+    public Direction nextMove(GameEngine engine) {
+        int x = engine.getPlayerX();
+        int y = engine.getPlayerY();
+        int count = 0;
+        for (Direction d : DIRECTIONS) {
+            if (Bot.mayMove(engine, x, y, d)) {
+                choices[count++] = d;
+            }
+        }
+        return (count > 0) ? choices[random.nextInt(count)] : DIRECTIONS[random.nextInt(4)];
+    }
+}
@@ -0,0 +1,270 @@
+package sim;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+
+import game.GameEngine;
+import game.GameListener;
+import maze.Direction;
+
+/**
+ * Plays 1v1 matches between two bots without a display, to see how the maze
+ * sizes and the hearts play out. Matches are split across a fork-join pool;
+ * each one is played by its own {@link GameEngine}, seeded from the match
+ * number, so a run plays the same matches however it is split.
+ * <p>
+ * Run from the command line as
+ * {@code java sim.Simulation [matches [strategyA [strategyB]]]}, with the
+ * strategies named as in {@link Strategy}, such as {@code wall-follower}. The
+ * system properties {@code sim.hearts}, {@code sim.easy}, {@code sim.medium}
+ * and {@code sim.hard} change the rules, {@code sim.seed} the matches and
+ * {@code sim.threads} the parallelism.
+ */
+public class Simulation {
+    private static final long MATCHES_PER_TASK = 64;
+    private static final long MAX_MOVES_PER_GAME = 1_000_000; // A game that takes longer abandons its match
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L; // Spreads the seeds of consecutive matches
+
+    /** The bots that can be simulated. */
+    public enum Strategy {
+        WALL_FOLLOWER(seed -> new WallFollowerBot()),
+        DEPTH_FIRST(DepthFirstBot::new),
+        RANDOM_WALK(RandomWalkBot::new);
+
+        private final LongFunction<Bot> factory;
+
+        Strategy(LongFunction<Bot> factory) {
+            this.factory = factory;
+        }
+
+        /**
+         * Creates a bot.
+         *
+         * @param  seed the seed of its random choices, if it makes any
+         * @return the bot
+         */
+        public Bot create(long seed) {
+            return factory.apply(seed);
+        }
+
+        /**
+         * Returns the strategy of a name such as {@code depth-first}.
+         *
+         * @param  name the name, in any case
+         * @return the strategy
+         * @throws IllegalArgumentException if no strategy has the name
+         */
+        public static Strategy forName(String name) {
+            return valueOf(name.toUpperCase().replace('-', '_'));
+        }
+    }
+
+    private final Strategy strategyA;
+    private final Strategy strategyB;
+    private final int hearts;
+    private final int[] sizes;
+
+    /**
+     * Creates a simulation.
+     *
+     * @param  strategyA the bot of player A
+     * @param  strategyB the bot of player B
+     * @param  hearts the hearts each player starts a game with
+     * @param  easy the width and height of easy mazes
+     * @param  medium the width and height of medium mazes
+     * @param  hard the width and height of hard mazes
+     * @throws IllegalArgumentException if hearts or a size is not positive
+     * @throws NullPointerException if a strategy is null
+     */
+    public Simulation(Strategy strategyA, Strategy strategyB, int hearts, int easy, int medium, int hard) {
+        if (strategyA == null || strategyB == null) {
+            throw new NullPointerException();
+        }
+        if (hearts <= 0 || easy <= 0 || medium <= 0 || hard <= 0) {
+            throw new IllegalArgumentException("Hearts and sizes must be positive");
+        }
+        this.strategyA = strategyA;
+        this.strategyB = strategyB;
+        this.hearts = hearts;
+        sizes = new int[] { 0, easy, medium, hard };
+    }
+
+    /**
+     * Plays matches in a pool and waits for the results.
+     *
+     * @param  matches the number of matches
+     * @param  seed the seed of the matches
+     * @param  pool the pool to play them in
+     * @return the results
+     * @throws IllegalArgumentException if matches is negative
+     * @throws NullPointerException if pool is null
+     */
+    public SimulationStats run(long matches, long seed, ForkJoinPool pool) {
+        if (matches < 0) {
+            throw new IllegalArgumentException("Matches must not be negative");
+        }
+        long start = System.nanoTime();
+        SimulationStats stats = pool.invoke(new Matches(seed, 0, matches));
+        stats.elapsedNanos = System.nanoTime() - start;
+        return stats;
+    }
+
+    /** Plays a range of matches, splitting it in halves while it is large. */
+    private final class Matches extends RecursiveTask<SimulationStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final long from;
+        private final long to;
+
+        Matches(long seed, long from, long to) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from > MATCHES_PER_TASK) {
+                long middle = (from + to) >>> 1;
+                Matches left = new Matches(seed, from, middle);
+                left.fork();
+                SimulationStats stats = new Matches(seed, middle, to).compute();
+                stats.add(left.join());
+                return stats;
+            }
+            SimulationStats stats = new SimulationStats();
+            System.arraycopy(sizes, 0, stats.sizes, 0, sizes.length);
+            MatchPlayer player = new MatchPlayer(stats);
+            for (long match = from; match < to; ++match) {
+                player.play(seed + match * SEED_STEP);
+            }
+            return stats;
+        }
+    }
+
+    /** Plays matches one after another and counts what happens in them. */
+    private final class MatchPlayer implements GameListener {
+        private final SimulationStats stats;
+        private GameEngine engine;
+        private boolean starting; // True when the player of the turn starts an attempt
+        private boolean over;
+        private boolean firstPlayerA; // The player who started the current game
+        private int difficulty;
+        private long moves; // Moves in the current game
+
+        MatchPlayer(SimulationStats stats) {
+            this.stats = stats;
+        }
+
+        void play(long matchSeed) {
+            SplittableRandom seeds = new SplittableRandom(matchSeed);
+            engine = new GameEngine(seeds.nextLong());
+            engine.setRules(hearts, sizes[GameEngine.EASY], sizes[GameEngine.MEDIUM], sizes[GameEngine.HARD]);
+            engine.setListener(this);
+            Bot botA = strategyA.create(seeds.nextLong());
+            Bot botB = strategyB.create(seeds.nextLong());
+            over = false;
+            engine.start1v1();
+            while (!over) {
+                Bot bot = engine.isPlayerATurn() ? botA : botB;
+                if (starting) {
+                    starting = false;
+                    bot.start(engine);
+                }
+                if (++moves > MAX_MOVES_PER_GAME) {
+                    ++stats.abandonedMatches;
+                    engine.resetMatch();
+                    return;
+                }
+                Direction direction = bot.nextMove(engine);
+                ++stats.totalMoves[difficulty];
+                bot.moved(direction, engine.move(direction));
+            }
+        }
+
+        @Override
+        public void gameStarted() {
+            engine.setMovable(true);
+            starting = true;
+            firstPlayerA = engine.isPlayerATurn();
+            difficulty = engine.getDifficulty();
+            moves = 0;
+        }
+
+        @Override
+        public void wallHit(int x, int y, Direction direction, int heartsLeft) {
+            ++stats.wallHits[difficulty];
+        }
+
+        @Override
+        public void heartsLost(boolean playerA, boolean handover) {
+            if (handover) {
+                ++stats.handovers[difficulty];
+                starting = true;
+            }
+        }
+
+        @Override
+        public void goalReached(boolean playerA) {
+            if (playerA == firstPlayerA) {
+                ++stats.firstPlayerWins[difficulty];
+            } else {
+                ++stats.secondPlayerWins[difficulty];
+            }
+            endGame();
+        }
+
+        @Override
+        public void gameLost() {
+            ++stats.lostGames[difficulty];
+            endGame();
+        }
+
+        @Override
+        public void matchOver(int playerAWins, int playerBWins, boolean early) {
+            ++stats.matches;
+            if (playerAWins > playerBWins) {
+                ++stats.playerAMatches;
+            } else if (playerBWins > playerAWins) {
+                ++stats.playerBMatches;
+            } else {
+                ++stats.drawnMatches;
+            }
+            over = true;
+        }
+
+        private void endGame() {
+            ++stats.games[difficulty];
+            stats.moves[difficulty].record(moves);
+        }
+    }
+
+    /**
+     * Runs a simulation and prints its report.
+     *
+     * @param  args the number of matches and the strategies of player A and B
+     * @throws IOException if the report cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        long matches = (args.length > 0) ? Long.parseLong(args[0]) : 100_000;
+        Strategy strategyA = (args.length > 1) ? Strategy.forName(args[1]) : Strategy.WALL_FOLLOWER;
+        Strategy strategyB = (args.length > 2) ? Strategy.forName(args[2]) : strategyA;
+        int hearts = Integer.getInteger("sim.hearts", GameEngine.HEARTS);
+        Simulation simulation = new Simulation(strategyA, strategyB, hearts,
+                Integer.getInteger("sim.easy", GameEngine.getSize(GameEngine.EASY)),
+                Integer.getInteger("sim.medium", GameEngine.getSize(GameEngine.MEDIUM)),
+                Integer.getInteger("sim.hard", GameEngine.getSize(GameEngine.HARD)));
+        ForkJoinPool pool = new ForkJoinPool(Integer.getInteger("sim.threads",
+                Runtime.getRuntime().availableProcessors()));
+        try {
+            System.out.printf("%s vs %s, %d hearts%n", strategyA, strategyB, hearts);
+            simulation.run(matches, Long.getLong("sim.seed", 1L), pool).writeReport(System.out);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
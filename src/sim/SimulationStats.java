@@ -0,0 +1,121 @@
+package sim;
+
+import java.io.IOException;
+
+import game.GameEngine;
+import perf.Histogram;
+
+/**
+ * The results of simulated matches: match outcomes, and per difficulty the
+ * games won and lost, the walls hit and the moves made. The statistics of
+ * separately simulated matches can be added together.
+ */
+public class SimulationStats {
+    private static final String[] NAMES = { null, "easy", "medium", "hard" };
+
+    long matches;
+    long playerAMatches;
+    long playerBMatches;
+    long drawnMatches;
+    long abandonedMatches; // Stopped when a game took too many moves
+    long elapsedNanos;
+
+    /* Indexed by difficulty, from GameEngine.EASY to GameEngine.HARD. */
+    final int[] sizes = new int[NAMES.length];
+    final long[] games = new long[NAMES.length];
+    final long[] firstPlayerWins = new long[NAMES.length]; // Won by the player who started the game
+    final long[] secondPlayerWins = new long[NAMES.length];
+    final long[] lostGames = new long[NAMES.length];
+    final long[] handovers = new long[NAMES.length]; // Games where a player lost all hearts
+    final long[] wallHits = new long[NAMES.length];
+    final long[] totalMoves = new long[NAMES.length];
+    final Histogram[] moves = new Histogram[NAMES.length]; // Moves per game, walls hit included
+
+    SimulationStats() {
+        for (int d = GameEngine.EASY; d <= GameEngine.HARD; ++d) {
+            moves[d] = new Histogram();
+        }
+    }
+
+    /**
+     * Adds the results of other matches to these.
+     *
+     * @param  other the other results
+     * @throws NullPointerException if other is null
+     */
+    public void add(SimulationStats other) {
+        matches += other.matches;
+        playerAMatches += other.playerAMatches;
+        playerBMatches += other.playerBMatches;
+        drawnMatches += other.drawnMatches;
+        abandonedMatches += other.abandonedMatches;
+        elapsedNanos = Math.max(elapsedNanos, other.elapsedNanos);
+        for (int d = GameEngine.EASY; d <= GameEngine.HARD; ++d) {
+            sizes[d] = Math.max(sizes[d], other.sizes[d]);
+            games[d] += other.games[d];
+            firstPlayerWins[d] += other.firstPlayerWins[d];
+            secondPlayerWins[d] += other.secondPlayerWins[d];
+            lostGames[d] += other.lostGames[d];
+            handovers[d] += other.handovers[d];
+            wallHits[d] += other.wallHits[d];
+            totalMoves[d] += other.totalMoves[d];
+            moves[d].add(other.moves[d]);
+        }
+    }
+
+    /** Returns the number of matches played to the end. */
+    public long getMatches() {
+        return matches;
+    }
+
+    /** Returns the number of games played to the end. */
+    public long getGames() {
+        long total = 0;
+        for (int d = GameEngine.EASY; d <= GameEngine.HARD; ++d) {
+            total += games[d];
+        }
+        return total;
+    }
+
+    /** Returns the number of moves made, walls hit included. */
+    public long getMoves() {
+        long total = 0;
+        for (int d = GameEngine.EASY; d <= GameEngine.HARD; ++d) {
+            total += totalMoves[d];
+        }
+        return total;
+    }
+
+    /** Returns the wall-clock time the matches took, in nanoseconds. */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Writes the throughput, the match outcomes and a line of win rates,
+     * hearts lost and moves per difficulty.
+     *
+     * @param  out where to append the report
+     * @throws IOException if the report cannot be appended
+     */
+    public void writeReport(Appendable out) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        out.append(String.format("%d matches, %d games, %d moves in %.3f s: %.0f games/s, %.0f moves/s%n",
+                matches, getGames(), getMoves(), seconds, getGames() / seconds, getMoves() / seconds));
+        out.append(String.format("matches          player A %5.1f%%  player B %5.1f%%  drawn %5.1f%%  abandoned %d%n",
+                percent(playerAMatches, matches), percent(playerBMatches, matches),
+                percent(drawnMatches, matches), abandonedMatches));
+        for (int d = GameEngine.EASY; d <= GameEngine.HARD; ++d) {
+            out.append(String.format("%-6s %3dx%-3d   games %9d  first player %5.1f%%  second player %5.1f%%"
+                    + "  lost %5.1f%%  handovers %5.1f%%  hearts lost %6.3f/game%n",
+                    NAMES[d], sizes[d], sizes[d], games[d], percent(firstPlayerWins[d], games[d]),
+                    percent(secondPlayerWins[d], games[d]), percent(lostGames[d], games[d]),
+                    percent(handovers[d], games[d]), (games[d] == 0) ? 0 : (double) wallHits[d] / games[d]));
+            moves[d].writePercentiles(out, NAMES[d] + " moves", 1, "moves");
+        }
+    }
+
+    private static double percent(long part, long whole) {
+        return (whole == 0) ? 0 : 100.0 * part / whole;
+    }
+}
@@ -0,0 +1,43 @@
+package sim;
+
+import game.GameEngine;
+import maze.Direction;
+
+/**
+ * Follows the wall on its right hand: at every tile it tries to turn right,
+ * then to go straight, to turn left and to turn back, skipping walls known to
+ * be hit. In a perfect maze this reaches every tile, so it always finds the
+ * goal if it has the hearts.
+ */
+public class WallFollowerBot implements Bot {
+    private static final Direction[] CLOCKWISE = Direction.values(); // NORTH, EAST, SOUTH, WEST
+    private static final int[] TURNS = { 1, 0, 3, 2 }; // Right, straight, left, back
+
+    private Direction heading = Direction.NORTH;
+
+    @Override
+    public void start(GameEngine engine) {
+        heading = Direction.NORTH;
+    }
+
+    @Override
+    public Direction nextMove(GameEngine engine) {
+        int x = engine.getPlayerX();
+        int y = engine.getPlayerY();
+        int facing = heading.ordinal();
+        for (int turn : TURNS) {
+            Direction d = CLOCKWISE[(facing + turn) % 4];
+            if (Bot.mayMove(engine, x, y, d)) {
+                return d;
+            }
+        }
+        return heading;
+    }
+
+    @Override
+    public void moved(Direction direction, int result) {
+        if (result == GameEngine.MOVED) {
+            heading = direction;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package solver;
+
+import java.util.Arrays;
+
+import controller.OutOfBoundsException;
+import maze.Direction;
+import maze.Maze;
+
+/**
+ * Computes distances and shortest paths over a {@link Maze}. All work is done
+ * on primitive arrays: breadth-first distance fields use an int ring buffer
+ * queue and an int distance array, and single queries use A* with an int
+ * binary heap. Nodes are identified by packed indices, {@code y * width + x}.
+ * <p>
+ * The solver takes a snapshot of the walls when it is created and reuses its
+ * scratch buffers, so repeated queries do not allocate once the buffers have
+ * grown to their working size. Call {@link #refresh()} after the maze changes.
+ * A solver is not safe for use by multiple threads.
+ */
+public class MazeSolver {
+    /** The distance of a node that cannot be reached. */
+    public static final int UNREACHABLE = -1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Maze maze;
+    private final int width;
+    private final int height;
+    private final int nodes;
+
+    /* Wall bits per node, with the border always walled. */
+    private final byte[] walls;
+    /* Packed index offset of the neighbour in each direction. */
+    private final int[] offsets = new int[4];
+
+    /* Breadth-first search. */
+    private final int[] distance;
+    private int[] queue = new int[1024];
+
+    /* A* search; a node's g and direction are valid only if its stamp is current. */
+    private int[] g;
+    private byte[] from;
+    private int[] stamp;
+    private int currentStamp;
+    private int[] heap = new int[1024];
+    private int[] heapKeys = new int[1024];
+    private int heapSize;
+
+    private int[] path = new int[64];
+    private int pathLength;
+
+    /**
+     * Creates a solver for a maze.
+     *
+     * @param  maze the maze
+     * @throws IllegalArgumentException if the maze has more than
+     *         {@code Integer.MAX_VALUE} nodes
+     * @throws NullPointerException if maze is null
+     */
+    public MazeSolver(Maze maze) {
+        if (maze.getSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze is too large to be solved");
+        }
+        this.maze = maze;
+        width = maze.getWidth();
+        height = maze.getHeight();
+        nodes = (int) maze.getSize();
+        walls = new byte[nodes];
+        distance = new int[nodes];
+        for (Direction d : DIRECTIONS) {
+            offsets[d.ordinal()] = d.dy * width + d.dx;
+        }
+        refresh();
+    }
+
+    /** Returns the maze. */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /** Takes a new snapshot of the walls of the maze. */
+    public void refresh() {
+        for (int y = 0; y < height; ++y) {
+            maze.readRow(y, walls, y * width);
+            walls[y * width] |= Direction.WEST.mask;
+            walls[y * width + width - 1] |= Direction.EAST.mask;
+        }
+        for (int x = 0; x < width; ++x) {
+            walls[x] |= Direction.NORTH.mask;
+            walls[(height - 1) * width + x] |= Direction.SOUTH.mask;
+        }
+    }
+
+    /** Returns the packed index of a node. */
+    public int pack(int x, int y) {
+        return y * width + x;
+    }
+
+    /** Returns the x-coordinate of a packed index. */
+    public int x(int node) {
+        return node % width;
+    }
+
+    /** Returns the y-coordinate of a packed index. */
+    public int y(int node) {
+        return node / width;
+    }
+
+    /**
+     * Computes the distance from a node to every node with a breadth-first
+     * search. The returned array is owned by the solver and is overwritten by
+     * the next call.
+     *
+     * @param  x the x-coordinate of the source node
+     * @param  y the y-coordinate of the source node
+     * @return the distances indexed by packed index, {@link #UNREACHABLE} for
+     *         nodes that cannot be reached
+     * @throws OutOfBoundsException if (x, y) is out of bounds
+     */
+    public int[] distances(int x, int y) {
+        checkBounds(x, y);
+        Arrays.fill(distance, UNREACHABLE);
+        int source = pack(x, y);
+        distance[source] = 0;
+
+        /* The queue is a ring buffer whose capacity is a power of two. */
+        int head = 0;
+        int tail = 0;
+        int mask = queue.length - 1;
+        queue[tail++ & mask] = source;
+        while (head != tail) {
+            int node = queue[head++ & mask];
+            int next = distance[node] + 1;
+            int w = walls[node];
+            for (int k = 0; k < 4; ++k) {
+                if ((w & DIRECTIONS[k].mask) != 0) {
+                    continue;
+                }
+                int neighbour = node + offsets[k];
+                if (distance[neighbour] != UNREACHABLE) {
+                    continue;
+                }
+                distance[neighbour] = next;
+                if (tail - head == queue.length) {
+                    growQueue(head, tail);
+                    head = 0;
+                    tail = queue.length >>> 1;
+                    mask = queue.length - 1;
+                }
+                queue[tail++ & mask] = neighbour;
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Finds the length of a shortest path between two nodes with A*.
+     *
+     * @param  sx the x-coordinate of the start node
+     * @param  sy the y-coordinate of the start node
+     * @param  gx the x-coordinate of the goal node
+     * @param  gy the y-coordinate of the goal node
+     * @return the number of steps on the path, or {@link #UNREACHABLE}
+     * @throws OutOfBoundsException if a node is out of bounds
+     */
+    public int distance(int sx, int sy, int gx, int gy) {
+        checkBounds(sx, sy);
+        checkBounds(gx, gy);
+        return search(pack(sx, sy), pack(gx, gy));
+    }
+
+    /**
+     * Finds a shortest path between two nodes with A*. The path, including
+     * both end nodes, is then available from {@link #getPath()}.
+     *
+     * @param  sx the x-coordinate of the start node
+     * @param  sy the y-coordinate of the start node
+     * @param  gx the x-coordinate of the goal node
+     * @param  gy the y-coordinate of the goal node
+     * @return the number of nodes on the path, or 0 if there is none
+     * @throws OutOfBoundsException if a node is out of bounds
+     */
+    public int findPath(int sx, int sy, int gx, int gy) {
+        checkBounds(sx, sy);
+        checkBounds(gx, gy);
+        int goal = pack(gx, gy);
+        int steps = search(pack(sx, sy), goal);
+        if (steps == UNREACHABLE) {
+            pathLength = 0;
+            return 0;
+        }
+        pathLength = steps + 1;
+        if (path.length < pathLength) {
+            path = new int[Math.max(pathLength, 2 * path.length)];
+        }
+        int node = goal;
+        for (int i = pathLength - 1; i > 0; --i) {
+            path[i] = node;
+            node -= offsets[from[node]];
+        }
+        path[0] = node;
+        return pathLength;
+    }
+
+    /**
+     * Returns the packed indices of the last path found by
+     * {@link #findPath}. The array is owned by the solver; only the first
+     * {@link #getPathLength()} entries are valid.
+     */
+    public int[] getPath() {
+        return path;
+    }
+
+    /** Returns the number of nodes on the last path found. */
+    public int getPathLength() {
+        return pathLength;
+    }
+
+    /** Runs A* with the Manhattan distance heuristic. */
+    private int search(int start, int goal) {
+        if (g == null) {
+            g = new int[nodes];
+            from = new byte[nodes];
+            stamp = new int[nodes];
+        }
+        if (++currentStamp == 0) {
+            Arrays.fill(stamp, 0);
+            currentStamp = 1;
+        }
+        int gx = x(goal);
+        int gy = y(goal);
+
+        heapSize = 0;
+        stamp[start] = currentStamp;
+        g[start] = 0;
+        push(start, heuristic(start, gx, gy));
+        while (heapSize > 0) {
+            int key = heapKeys[0];
+            int node = pop();
+            if (node == goal) {
+                return g[node];
+            }
+            if (key > g[node] + heuristic(node, gx, gy)) {
+                /* A stale entry of a node that was reached more cheaply. */
+                continue;
+            }
+            int next = g[node] + 1;
+            int w = walls[node];
+            for (int k = 0; k < 4; ++k) {
+                if ((w & DIRECTIONS[k].mask) != 0) {
+                    continue;
+                }
+                int neighbour = node + offsets[k];
+                if (stamp[neighbour] == currentStamp && g[neighbour] <= next) {
+                    continue;
+                }
+                stamp[neighbour] = currentStamp;
+                g[neighbour] = next;
+                from[neighbour] = (byte) k;
+                push(neighbour, next + heuristic(neighbour, gx, gy));
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    private int heuristic(int node, int gx, int gy) {
+        return Math.abs(x(node) - gx) + Math.abs(y(node) - gy);
+    }
+
+    private void push(int node, int key) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heap.length);
+            heapKeys = Arrays.copyOf(heapKeys, 2 * heapKeys.length);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heap[i] = node;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int top = heap[0];
+        int node = heap[--heapSize];
+        int key = heapKeys[heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                ++child;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heap[i] = node;
+        heapKeys[i] = key;
+        return top;
+    }
+
+    /** Doubles the queue, moving the live entries to its start. */
+    private void growQueue(int head, int tail) {
+        int[] grown = new int[2 * queue.length];
+        int mask = queue.length - 1;
+        for (int i = head; i != tail; ++i) {
+            grown[i - head] = queue[i & mask];
+        }
+        queue = grown;
+    }
+
+    private void checkBounds(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new OutOfBoundsException("(" + x + ", " + y + ")");
+        }
+    }
+}
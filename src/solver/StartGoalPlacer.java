@@ -0,0 +1,136 @@
+package solver;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Places a start and a goal in a maze so that the path between them has a
+ * requested length. A random start is chosen, one breadth-first distance field
+ * is computed from it, and the distances are counted by length so the goal can
+ * be drawn from a percentile of the path lengths. Placement always takes
+ * O(width * height) time; there is no rejection sampling.
+ * <p>
+ * The placer reuses its buffers, so repeated placements do not allocate once
+ * the buffers have grown to their working size.
+ */
+public class StartGoalPlacer {
+    private final MazeSolver solver;
+
+    /* Number of nodes at each distance from the start. */
+    private int[] counts = new int[64];
+
+    private int start;
+    private int goal;
+    private int distance;
+
+    /**
+     * Creates a placer that uses a solver.
+     *
+     * @param  solver the solver of the maze
+     * @throws NullPointerException if solver is null
+     */
+    public StartGoalPlacer(MazeSolver solver) {
+        if (solver == null) {
+            throw new NullPointerException();
+        }
+        this.solver = solver;
+    }
+
+    /**
+     * Places a start and a goal. The goal is a random node whose distance
+     * from the start is at the specified percentile of the distances of all
+     * nodes reachable from the start, but at least minDistance if the maze
+     * allows it.
+     *
+     * @param  rnd the random number generator
+     * @param  percentile the percentile of the path length, from 0 (nearest)
+     *         to 1 (farthest)
+     * @param  minDistance the smallest path length that is wanted
+     * @return the length of the path from the start to the goal
+     * @throws IllegalArgumentException if percentile is not between 0 and 1
+     * @throws NullPointerException if rnd is null
+     */
+    public int place(RandomGenerator rnd, double percentile, int minDistance) {
+        if (!(percentile >= 0 && percentile <= 1)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        int width = solver.getMaze().getWidth();
+        int height = solver.getMaze().getHeight();
+        int sx = rnd.nextInt(width);
+        int sy = rnd.nextInt(height);
+        start = solver.pack(sx, sy);
+        int[] distances = solver.distances(sx, sy);
+
+        /* Counts the nodes at each distance, excluding the start itself. */
+        int max = 0;
+        int reachable = 0;
+        for (int d : distances) {
+            if (d <= 0) {
+                continue;
+            }
+            if (d >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(d + 1, 2 * counts.length));
+            }
+            if (d > max) {
+                Arrays.fill(counts, max + 1, d + 1, 0);
+                max = d;
+            }
+            ++counts[d];
+            ++reachable;
+        }
+        if (reachable == 0) {
+            goal = start;
+            distance = 0;
+            return 0;
+        }
+
+        /* Finds the distance at the requested rank of the sorted distances. */
+        int rank = (int) Math.min(reachable - 1, (long) (percentile * reachable));
+        int target = 1;
+        for (int seen = counts[1]; seen <= rank; seen += counts[target]) {
+            ++target;
+        }
+        if (target < minDistance) {
+            target = Math.min(minDistance, max);
+            while (counts[target] == 0) {
+                ++target;
+            }
+        }
+
+        /* Picks a random node at that distance. */
+        int pick = rnd.nextInt(counts[target]);
+        for (int i = 0; i < distances.length; ++i) {
+            if (distances[i] == target && pick-- == 0) {
+                goal = i;
+                break;
+            }
+        }
+        distance = target;
+        return target;
+    }
+
+    /** Returns the x-coordinate of the last start placed. */
+    public int getStartX() {
+        return solver.x(start);
+    }
+
+    /** Returns the y-coordinate of the last start placed. */
+    public int getStartY() {
+        return solver.y(start);
+    }
+
+    /** Returns the x-coordinate of the last goal placed. */
+    public int getGoalX() {
+        return solver.x(goal);
+    }
+
+    /** Returns the y-coordinate of the last goal placed. */
+    public int getGoalY() {
+        return solver.y(goal);
+    }
+
+    /** Returns the path length between the last start and goal placed. */
+    public int getDistance() {
+        return distance;
+    }
+}
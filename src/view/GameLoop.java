@@ -0,0 +1,200 @@
+package view;
+
+import java.awt.Canvas;
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An active rendering loop on a dedicated thread. The game is updated at a
+ * fixed rate, independent of the frame rate, and rendered into the
+ * {@link BufferStrategy} of a {@link Canvas} as often as the frame cap allows.
+ * Each frame is told how far it lies between the last update and the next, so
+ * movement can be interpolated smoothly.
+ * <p>
+ * If rendering falls behind, at most {@link #MAX_UPDATES_PER_FRAME} updates
+ * are run before the next frame and the rest of the backlog is dropped, so a
+ * stall slows the game down instead of freezing the screen.
+ */
+public class GameLoop {
+    /** The callbacks of the loop; both are called on the loop thread. */
+    public interface Game {
+        /** Advances the game by one fixed step. */
+        void update();
+
+        /**
+         * Renders a frame.
+         *
+         * @param g the graphics context of the back buffer
+         * @param alpha how far the frame lies between the last update and the
+         *        next, from 0 inclusive to 1 exclusive
+         */
+        void render(Graphics2D g, double alpha);
+    }
+
+    /** The most updates run to catch up before a frame is rendered. */
+    public static final int MAX_UPDATES_PER_FRAME = 5;
+
+    private final Canvas canvas;
+    private final Game game;
+    private final long updateNanos;
+    private volatile long frameNanos;
+    private volatile boolean running;
+    private volatile double framesPerSecond;
+    private Thread thread;
+
+    /**
+     * Creates a loop.
+     *
+     * @param  canvas the canvas to render into
+     * @param  game the game to update and render
+     * @param  updatesPerSecond the number of fixed updates per second
+     * @param  maxFramesPerSecond the frame cap, or 0 for no cap
+     * @throws IllegalArgumentException if updatesPerSecond is not positive or
+     *         maxFramesPerSecond is negative
+     * @throws NullPointerException if canvas or game is null
+     */
+    public GameLoop(Canvas canvas, Game game, int updatesPerSecond, int maxFramesPerSecond) {
+        if (canvas == null || game == null) {
+            throw new NullPointerException();
+        }
+        if (updatesPerSecond <= 0) {
+            throw new IllegalArgumentException("Updates per second must be positive");
+        }
+        this.canvas = canvas;
+        this.game = game;
+        updateNanos = 1_000_000_000L / updatesPerSecond;
+        setMaxFramesPerSecond(maxFramesPerSecond);
+    }
+
+    /**
+     * Sets the frame cap. Takes effect from the next frame.
+     *
+     * @param  maxFramesPerSecond the frame cap, or 0 for no cap
+     * @throws IllegalArgumentException if maxFramesPerSecond is negative
+     */
+    public void setMaxFramesPerSecond(int maxFramesPerSecond) {
+        if (maxFramesPerSecond < 0) {
+            throw new IllegalArgumentException("Frame cap must not be negative");
+        }
+        frameNanos = (maxFramesPerSecond == 0) ? 0 : 1_000_000_000L / maxFramesPerSecond;
+    }
+
+    /** Returns the number of frames rendered per second, averaged over about a second. */
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    /** Returns true if the loop is running. */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts the loop. The canvas must be displayable, that is, added to a
+     * window that has been packed or shown.
+     *
+     * @throws IllegalStateException if the loop is running or the canvas is
+     *         not displayable
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException("Loop is already running");
+        }
+        if (!canvas.isDisplayable()) {
+            throw new IllegalStateException("Canvas is not displayable");
+        }
+        canvas.setIgnoreRepaint(true);
+        canvas.createBufferStrategy(2);
+        running = true;
+        thread = new Thread(this::run, "Game Loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stops the loop and waits for the frame in progress to finish. */
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        if (thread != Thread.currentThread()) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    private void run() {
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        long previous = System.nanoTime();
+        long lag = 0;
+        long fpsStart = previous;
+        int frames = 0;
+
+        while (running) {
+            long frameStart = System.nanoTime();
+            lag += frameStart - previous;
+            previous = frameStart;
+
+            int updates = 0;
+            while (lag >= updateNanos && updates < MAX_UPDATES_PER_FRAME) {
+                game.update();
+                lag -= updateNanos;
+                ++updates;
+            }
+            if (lag >= updateNanos) {
+                /* Too far behind; drop the backlog rather than spiral. */
+                lag %= updateNanos;
+            }
+
+            render(strategy, (double) lag / updateNanos);
+
+            ++frames;
+            long now = System.nanoTime();
+            if (now - fpsStart >= 1_000_000_000L) {
+                framesPerSecond = frames * 1e9 / (now - fpsStart);
+                frames = 0;
+                fpsStart = now;
+            }
+
+            /* Sleeps off the rest of the frame under a cap. */
+            long cap = frameNanos;
+            if (cap > 0) {
+                long deadline = frameStart + cap;
+                for (long left = deadline - now; left > 0 && running; left = deadline - System.nanoTime()) {
+                    LockSupport.parkNanos(left);
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void render(BufferStrategy strategy, double alpha) {
+        do {
+            do {
+                Graphics2D g = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    game.render(g, alpha);
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        /* Flushes the window system's queue so the frame appears now. */
+        Toolkit.getDefaultToolkit().sync();
+    }
+}
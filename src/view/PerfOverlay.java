@@ -0,0 +1,100 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+import perf.Histogram;
+import perf.PerfMonitor;
+
+/**
+ * A box of runtime figures drawn over the top left corner of the view: frames
+ * per second, paint and move times, input latency, maze generation time,
+ * allocation per paint and garbage collections. The text is built by
+ * {@link #refresh()}, so drawing it on every frame costs only the drawing.
+ * <p>
+ * The overlay can be refreshed on one thread and painted on another: each
+ * refresh publishes a new array of lines, which is never changed afterwards.
+ */
+public class PerfOverlay {
+    private static final int MARGIN = 4;
+    private static final int PADDING = 4;
+    private static final int LINE_HEIGHT = 13;
+    private static final int WIDTH = 250;
+    private static final int LINES = 7;
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 160);
+
+    private final PerfMonitor monitor;
+    private volatile String[] lines; // Replaced, never changed, by refresh
+    private long lastFrames; // Only accessed by the refreshing thread
+    private long lastNanos;
+    private long lastCollections;
+
+    /**
+     * Creates an overlay.
+     *
+     * @param  monitor the monitor to show
+     * @throws NullPointerException if monitor is null
+     */
+    public PerfOverlay(PerfMonitor monitor) {
+        if (monitor == null) {
+            throw new NullPointerException();
+        }
+        this.monitor = monitor;
+        lastNanos = System.nanoTime();
+        refresh();
+    }
+
+    /** Rebuilds the text from the monitor; rates are measured since the last refresh. */
+    public void refresh() {
+        long now = System.nanoTime();
+        long frames = monitor.getFrames();
+        long collections = monitor.getCollectionCount();
+        double seconds = Math.max(1e-9, (now - lastNanos) / 1e9);
+
+        String[] lines = new String[LINES];
+        lines[0] = String.format("FPS %6.1f", (frames - lastFrames) / seconds);
+        lines[1] = format("Paint", monitor.getPaintTime(), 1e6, "ms");
+        lines[2] = format("Alloc/paint", monitor.getPaintAllocation(), 1024, "KiB");
+        lines[3] = format("Move", monitor.getMoveTime(), 1e6, "ms");
+        lines[4] = format("Input>paint", monitor.getInputLatency(), 1e6, "ms");
+        lines[5] = format("Generate", monitor.getGenerationTime(), 1e6, "ms");
+        lines[6] = String.format("GC %d (+%d), %d ms", collections, collections - lastCollections,
+                monitor.getCollectionTime());
+        this.lines = lines;
+
+        lastFrames = frames;
+        lastNanos = now;
+        lastCollections = collections;
+    }
+
+    /** Returns the area the overlay covers, in view pixels. */
+    public Rectangle getBounds() {
+        return new Rectangle(MARGIN, MARGIN, WIDTH, 2 * PADDING + LINES * LINE_HEIGHT);
+    }
+
+    /**
+     * Draws the overlay.
+     *
+     * @param g the graphics context, with the view at its origin
+     */
+    public void paint(Graphics2D g) {
+        Rectangle bounds = getBounds();
+        g.setColor(BACKGROUND);
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(Color.WHITE);
+        g.setFont(FONT);
+        int baseline = bounds.y + PADDING + LINE_HEIGHT - 3;
+        for (String line : lines) {
+            g.drawString(line, bounds.x + PADDING, baseline);
+            baseline += LINE_HEIGHT;
+        }
+    }
+
+    private static String format(String name, Histogram h, double unit, String unitName) {
+        return String.format("%-11s p50 %6.2f p99 %6.2f %s", name, h.getValueAtPercentile(50) / unit,
+                h.getValueAtPercentile(99) / unit, unitName);
+    }
+}
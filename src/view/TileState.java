@@ -0,0 +1,12 @@
+package view;
+
+import maze.Direction;
+
+/** The state of the tiles of a maze that decides how their walls are drawn. */
+public interface TileState {
+    /** Returns true if the walls of a tile are shown while walls are invisible. */
+    boolean isRevealed(int x, int y);
+
+    /** Returns true if a wall of a tile was hit. */
+    boolean isHit(int x, int y, Direction d);
+}
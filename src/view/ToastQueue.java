@@ -0,0 +1,268 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.font.FontRenderContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Messages shown one at a time in a banner at the bottom of the view, in
+ * place of modal dialogs. A toast is shown for a fixed time and then gives
+ * way to the next, or to {@link #confirm()}; a confirm toast stays until it
+ * is confirmed and then runs its action. Nothing blocks: posting a toast only
+ * queues it.
+ * <p>
+ * Toasts with the same key coalesce. A new toast replaces a queued or shown
+ * toast with its key, which is shown again for the full time; if the text is
+ * the same, the toast counts the repeats instead. Advance the queue with
+ * {@link #update()}, for instance from a Swing timer. All methods are
+ * thread-safe, so the queue may be drawn from a render thread.
+ */
+public class ToastQueue {
+    /** The time a toast is shown, in milliseconds. */
+    public static final long DURATION = 1500;
+
+    private static final int PADDING = 6;
+    private static final int LINE_HEIGHT = 16;
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+    private static final FontRenderContext CONTEXT = new FontRenderContext(null, true, true);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 190);
+    private static final Color CONFIRM_BACKGROUND = new Color(30, 60, 140, 220);
+    private static final String CONFIRM_HINT = "Press Enter to continue";
+
+    private final ArrayDeque<Toast> queue = new ArrayDeque<>();
+    private Toast current;
+    private long expires; // nanoTime at which the current timed toast goes
+
+    /* The lines of the current toast, wrapped to a width. */
+    private List<String> lines = new ArrayList<>();
+    private Toast linesToast;
+    private int linesWidth = -1;
+    private int linesCount = -1;
+    private String linesText;
+
+    /**
+     * Queues a toast, keyed by its text.
+     *
+     * @param  message the text; {@code '\n'} starts a new line
+     * @throws NullPointerException if message is null
+     */
+    public void post(String message) {
+        post(message, message);
+    }
+
+    /**
+     * Queues a toast that replaces any toast with the same key.
+     *
+     * @param  key the key
+     * @param  message the text; {@code '\n'} starts a new line
+     * @throws NullPointerException if key or message is null
+     */
+    public synchronized void post(String key, String message) {
+        if (key == null || message == null) {
+            throw new NullPointerException();
+        }
+        if (current != null && current.action == null && current.key.equals(key)) {
+            current.repeat(message);
+            expires = System.nanoTime() + DURATION * 1_000_000;
+            return;
+        }
+        for (Toast t : queue) {
+            if (t.action == null && t.key.equals(key)) {
+                t.repeat(message);
+                return;
+            }
+        }
+        queue.add(new Toast(key, message, null));
+        if (current == null) {
+            next();
+        }
+    }
+
+    /**
+     * Queues a toast that stays until it is confirmed.
+     *
+     * @param  message the text; {@code '\n'} starts a new line
+     * @param  action run by {@link #confirm()}, or null
+     * @throws NullPointerException if message is null
+     */
+    public synchronized void postConfirm(String message, Runnable action) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        queue.add(new Toast(message, message, (action != null) ? action : () -> { }));
+        if (current == null) {
+            next();
+        }
+    }
+
+    /**
+     * Dismisses the toast shown. If it waits for confirmation, its action is
+     * run in the calling thread.
+     *
+     * @return true if a toast was dismissed
+     */
+    public boolean confirm() {
+        Runnable action;
+        synchronized (this) {
+            if (current == null) {
+                return false;
+            }
+            action = current.action;
+            next();
+        }
+        if (action != null) {
+            action.run();
+        }
+        return true;
+    }
+
+    /** Returns true if a toast shown or queued waits for confirmation. */
+    public synchronized boolean isAwaitingConfirm() {
+        if (current != null && current.action != null) {
+            return true;
+        }
+        for (Toast t : queue) {
+            if (t.action != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns true if no toast is shown or queued. */
+    public synchronized boolean isEmpty() {
+        return current == null;
+    }
+
+    /** Removes the confirm toasts, shown or queued, without running their actions. */
+    public synchronized void clearConfirms() {
+        for (Iterator<Toast> it = queue.iterator(); it.hasNext();) {
+            if (it.next().action != null) {
+                it.remove();
+            }
+        }
+        if (current != null && current.action != null) {
+            next();
+        }
+    }
+
+    /**
+     * Dismisses the toast shown if its time is up.
+     *
+     * @return true if the toast shown changed
+     */
+    public synchronized boolean update() {
+        if (current == null || current.action != null || System.nanoTime() - expires < 0) {
+            return false;
+        }
+        next();
+        return true;
+    }
+
+    /**
+     * Returns the area the toast shown covers, or an empty rectangle if none
+     * is shown.
+     *
+     * @param viewWidth the width of the view in pixels
+     * @param viewHeight the height of the view in pixels
+     * @return the area in view pixels
+     */
+    public synchronized Rectangle getBounds(int viewWidth, int viewHeight) {
+        if (current == null) {
+            return new Rectangle();
+        }
+        int height = 2 * PADDING + wrap(viewWidth - 2 * PADDING).size() * LINE_HEIGHT;
+        return new Rectangle(0, viewHeight - height, viewWidth, height);
+    }
+
+    /**
+     * Draws the toast shown, if any.
+     *
+     * @param g the graphics context, with the view at its origin
+     * @param viewWidth the width of the view in pixels
+     * @param viewHeight the height of the view in pixels
+     */
+    public synchronized void paint(Graphics2D g, int viewWidth, int viewHeight) {
+        if (current == null) {
+            return;
+        }
+        Rectangle bounds = getBounds(viewWidth, viewHeight);
+        g.setColor(current.action != null ? CONFIRM_BACKGROUND : BACKGROUND);
+        g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+        g.setColor(Color.WHITE);
+        g.setFont(FONT);
+        FontMetrics metrics = g.getFontMetrics();
+        int baseline = bounds.y + PADDING + metrics.getAscent();
+        for (String line : lines) {
+            g.drawString(line, (viewWidth - metrics.stringWidth(line)) / 2, baseline);
+            baseline += LINE_HEIGHT;
+        }
+    }
+
+    /** Shows the next toast in the queue, if any. */
+    private void next() {
+        current = queue.poll();
+        expires = System.nanoTime() + DURATION * 1_000_000;
+    }
+
+    /** Returns the lines of the toast shown, wrapped at spaces to fit a width. */
+    private List<String> wrap(int width) {
+        if (current == linesToast && width == linesWidth && current.count == linesCount
+                && current.message.equals(linesText)) {
+            return lines;
+        }
+        lines = new ArrayList<>();
+        String text = (current.count > 1) ? current.message + " (x" + current.count + ")" : current.message;
+        if (current.action != null) {
+            text += "\n" + CONFIRM_HINT;
+        }
+        for (String paragraph : text.split("\n")) {
+            if (paragraph.trim().isEmpty()) {
+                continue;
+            }
+            StringBuilder line = new StringBuilder();
+            for (String word : paragraph.trim().split(" +")) {
+                if (line.length() > 0 && FONT.getStringBounds(line + " " + word, CONTEXT).getWidth() > width) {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                }
+                if (line.length() > 0) {
+                    line.append(' ');
+                }
+                line.append(word);
+            }
+            lines.add(line.toString());
+        }
+        linesToast = current;
+        linesWidth = width;
+        linesCount = current.count;
+        linesText = current.message;
+        return lines;
+    }
+
+    /** A queued message. */
+    private static final class Toast {
+        final String key;
+        final Runnable action; // Null unless the toast waits for confirmation
+        String message;
+        int count = 1;
+
+        Toast(String key, String message, Runnable action) {
+            this.key = key;
+            this.message = message;
+            this.action = action;
+        }
+
+        void repeat(String text) {
+            count = text.equals(message) ? count + 1 : 1;
+            message = text;
+        }
+    }
+}
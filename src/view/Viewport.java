@@ -0,0 +1,422 @@
+package view;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Stroke;
+
+import maze.Direction;
+import maze.Maze;
+
+/**
+ * A camera over a maze that is larger than the screen. The viewport shows a
+ * window of the maze at a zoom level, follows a tile such as the player, and
+ * draws only the tiles that intersect the window, so the cost of a frame
+ * depends on the size of the window and not on the size of the maze.
+ * <p>
+ * Tiles of at least {@link #DETAIL_TILE_SIZE} pixels are drawn like the wall
+ * layers of {@link WallLayerCache}: the grid in light grey and every wall as a
+ * line whose width scales with the tile. Smaller tiles are drawn with less
+ * detail: no grid, and each shared wall once as a one pixel line. While all
+ * walls are visible they are drawn from a {@link WallGeometry} of merged runs,
+ * with hit walls drawn over them in red. The runs are rebuilt when a paint
+ * finds that the walls of the maze changed.
+ */
+public class Viewport {
+    /** The smallest width and height of a tile in pixels. */
+    public static final int MIN_TILE_SIZE = 3;
+
+    /** The largest width and height of a tile in pixels. */
+    public static final int MAX_TILE_SIZE = 100;
+
+    /** The smallest tile size at which the grid and wide lines are drawn. */
+    public static final int DETAIL_TILE_SIZE = 12;
+
+    /* Line width per pixel of tile size; 3 pixels on a 50 pixel tile. */
+    private static final float STROKE_PER_PIXEL = 3.0f / 50;
+
+    /* Wall lines are drawn in this order; later lines paint over earlier ones. */
+    private static final Direction[] ORDER = { Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST };
+
+    private final Maze maze;
+    private final TileState state;
+    private final byte[] row;
+    private WallGeometry geometry;
+    private int geometryModCount; // The modCount of the maze when geometry was built
+
+    private int tileSize;
+    private Stroke stroke;
+    private int margin;
+    private int viewWidth;
+    private int viewHeight;
+
+    /* Position of the top left corner of the view in maze pixels. */
+    private int originX;
+    private int originY;
+
+    /**
+     * Creates a viewport at a zoom level. The view is empty until its size is
+     * set.
+     *
+     * @param  maze the maze
+     * @param  state the state of the tiles
+     * @param  tileSize the width and height of a tile in pixels
+     * @throws NullPointerException if maze or state is null
+     */
+    public Viewport(Maze maze, TileState state, int tileSize) {
+        if (state == null) {
+            throw new NullPointerException();
+        }
+        this.maze = maze;
+        this.state = state;
+        row = new byte[maze.getWidth()];
+        geometry();
+        setTileSize(tileSize);
+    }
+
+    /** Returns the merged wall runs, rebuilding them if the maze changed since they were built. */
+    private WallGeometry geometry() {
+        if (geometry == null || geometryModCount != maze.getModCount()) {
+            geometry = new WallGeometry(maze);
+            geometryModCount = maze.getModCount();
+        }
+        return geometry;
+    }
+
+    /** Returns the maze. */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /** Returns the width and height of a tile in pixels. */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the width and height of a tile in pixels, clamped to
+     * {@link #MIN_TILE_SIZE} and {@link #MAX_TILE_SIZE}. The tile at the
+     * centre of the view stays at the centre.
+     *
+     * @param  tileSize the width and height of a tile in pixels
+     */
+    public void setTileSize(int tileSize) {
+        tileSize = Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, tileSize));
+        int cx = 0;
+        int cy = 0;
+        if (this.tileSize > 0) {
+            cx = (originX + viewWidth / 2) / this.tileSize;
+            cy = (originY + viewHeight / 2) / this.tileSize;
+        }
+        this.tileSize = tileSize;
+        float width = Math.max(1, tileSize * STROKE_PER_PIXEL);
+        stroke = new BasicStroke(width);
+        margin = (int) Math.ceil(width / 2);
+        centerOn(cx, cy);
+    }
+
+    /** Doubles the size of a tile. */
+    public void zoomIn() {
+        setTileSize(tileSize * 2);
+    }
+
+    /** Halves the size of a tile. */
+    public void zoomOut() {
+        setTileSize(tileSize / 2);
+    }
+
+    /** Returns the width of the view in pixels. */
+    public int getViewWidth() {
+        return viewWidth;
+    }
+
+    /** Returns the height of the view in pixels. */
+    public int getViewHeight() {
+        return viewHeight;
+    }
+
+    /**
+     * Sets the size of the view in pixels.
+     *
+     * @param  width the width of the view
+     * @param  height the height of the view
+     */
+    public void setViewSize(int width, int height) {
+        viewWidth = Math.max(0, width);
+        viewHeight = Math.max(0, height);
+        clampOrigin();
+    }
+
+    /** Returns the x-coordinate of the left edge of the view in maze pixels. */
+    public int getOriginX() {
+        return originX;
+    }
+
+    /** Returns the y-coordinate of the top edge of the view in maze pixels. */
+    public int getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Moves the view so that a tile is at its centre, as far as the edges of
+     * the maze allow.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     */
+    public void centerOn(int x, int y) {
+        originX = x * tileSize + tileSize / 2 - viewWidth / 2;
+        originY = y * tileSize + tileSize / 2 - viewHeight / 2;
+        clampOrigin();
+    }
+
+    /**
+     * Moves the view to keep a tile away from its edges. The view is only
+     * moved when the tile leaves the middle half of the view, so most moves
+     * of a followed tile need not repaint the whole view.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @return true if the view moved
+     */
+    public boolean follow(int x, int y) {
+        int left = x * tileSize - originX;
+        int top = y * tileSize - originY;
+        if (left >= viewWidth / 4 && left + tileSize <= viewWidth - viewWidth / 4
+                && top >= viewHeight / 4 && top + tileSize <= viewHeight - viewHeight / 4) {
+            return false;
+        }
+        int oldX = originX;
+        int oldY = originY;
+        centerOn(x, y);
+        return originX != oldX || originY != oldY;
+    }
+
+    /* Keeps the view inside the maze; a maze smaller than the view is at its top left. */
+    private void clampOrigin() {
+        int mazeWidth = maze.getWidth() * tileSize + margin;
+        int mazeHeight = maze.getHeight() * tileSize + margin;
+        originX = Math.max(0, Math.min(originX, mazeWidth - viewWidth));
+        originY = Math.max(0, Math.min(originY, mazeHeight - viewHeight));
+    }
+
+    /**
+     * Returns the area of the view covered by a tile and the lines on its
+     * edges.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @return the area in view pixels
+     */
+    public Rectangle getTileBounds(int x, int y) {
+        return new Rectangle(x * tileSize - originX - margin, y * tileSize - originY - margin,
+                tileSize + 2 * margin, tileSize + 2 * margin);
+    }
+
+    /** Returns the x-coordinate of the left edge of a tile in view pixels. */
+    public int tileLeft(int x) {
+        return x * tileSize - originX;
+    }
+
+    /** Returns the y-coordinate of the top edge of a tile in view pixels. */
+    public int tileTop(int y) {
+        return y * tileSize - originY;
+    }
+
+    /**
+     * Draws the tiles that intersect the view and an area of it.
+     *
+     * @param  g the graphics context, with the view at its origin
+     * @param  wallsInvisible true to draw only the walls of revealed tiles
+     * @param  clip the area to draw in view pixels, or null for the whole view
+     */
+    public void paint(Graphics2D g, boolean wallsInvisible, Rectangle clip) {
+        Rectangle area = new Rectangle(viewWidth, viewHeight);
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+        if (area.isEmpty()) {
+            return;
+        }
+
+        /* The tiles whose lines can reach into the area. */
+        int x0 = Math.max(0, Math.floorDiv(originX + area.x - margin, tileSize));
+        int y0 = Math.max(0, Math.floorDiv(originY + area.y - margin, tileSize));
+        int x1 = Math.min(maze.getWidth(), Math.floorDiv(originX + area.x + area.width + margin, tileSize) + 1);
+        int y1 = Math.min(maze.getHeight(), Math.floorDiv(originY + area.y + area.height + margin, tileSize) + 1);
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+
+        Stroke oldStroke = g.getStroke();
+        g.translate(-originX, -originY);
+        try {
+            if (!wallsInvisible) {
+                paintMerged(g, x0, y0, x1, y1);
+            } else if (tileSize >= DETAIL_TILE_SIZE) {
+                paintDetailed(g, wallsInvisible, x0, y0, x1, y1);
+            } else {
+                paintSimple(g, wallsInvisible, x0, y0, x1, y1);
+            }
+        } finally {
+            g.translate(originX, originY);
+            g.setStroke(oldStroke);
+        }
+    }
+
+    /** Draws the grid as whole lines, the merged wall runs, and the hit walls over them. */
+    private void paintMerged(Graphics2D g, int x0, int y0, int x1, int y1) {
+        boolean thin = tileSize < DETAIL_TILE_SIZE;
+        if (!thin) {
+            g.setStroke(stroke);
+            g.setColor(Color.LIGHT_GRAY);
+            for (int y = y0; y <= y1; ++y) {
+                g.drawLine(x0 * tileSize, y * tileSize, x1 * tileSize, y * tileSize);
+            }
+            for (int x = x0; x <= x1; ++x) {
+                g.drawLine(x * tileSize, y0 * tileSize, x * tileSize, y1 * tileSize);
+            }
+        }
+        g.setColor(Color.BLACK);
+        geometry().draw(g, tileSize, thin, x0, y0, x1, y1);
+
+        g.setColor(Color.RED);
+        int len = x1 - x0;
+        for (int y = y0; y < y1; ++y) {
+            maze.readRow(x0, y, row, 0, len);
+            for (int x = x0; x < x1; ++x) {
+                int walls = row[x - x0];
+                for (Direction d : ORDER) {
+                    if ((walls & d.mask) != 0 && state.isHit(x, y, d)) {
+                        drawSide(g, x, y, d, thin);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Draws one side of a tile as a line with the current stroke, or one pixel wide. */
+    private void drawSide(Graphics2D g, int x, int y, Direction d, boolean thin) {
+        int left = x * tileSize;
+        int top = y * tileSize;
+        int right = left + tileSize;
+        int bottom = top + tileSize;
+        if (thin) {
+            switch (d) {
+                case NORTH:
+                    g.fillRect(left, top, tileSize + 1, 1);
+                    break;
+                case SOUTH:
+                    g.fillRect(left, bottom, tileSize + 1, 1);
+                    break;
+                case WEST:
+                    g.fillRect(left, top, 1, tileSize + 1);
+                    break;
+                case EAST:
+                    g.fillRect(right, top, 1, tileSize + 1);
+                    break;
+            }
+            return;
+        }
+        switch (d) {
+            case NORTH:
+                g.drawLine(left, top, right, top);
+                break;
+            case SOUTH:
+                g.drawLine(left, bottom, right, bottom);
+                break;
+            case WEST:
+                g.drawLine(left, top, left, bottom);
+                break;
+            case EAST:
+                g.drawLine(right, top, right, bottom);
+                break;
+        }
+    }
+
+    /** Draws the grid and each side of each tile, in the order of the wall layers. */
+    private void paintDetailed(Graphics2D g, boolean wallsInvisible, int x0, int y0, int x1, int y1) {
+        g.setStroke(stroke);
+        g.setColor(Color.LIGHT_GRAY);
+        for (int y = y0; y < y1; ++y) {
+            for (int x = x0; x < x1; ++x) {
+                g.drawRect(x * tileSize, y * tileSize, tileSize, tileSize);
+            }
+        }
+
+        int len = x1 - x0;
+        for (int y = y0; y < y1; ++y) {
+            maze.readRow(x0, y, row, 0, len);
+            for (int x = x0; x < x1; ++x) {
+                if (wallsInvisible && !state.isRevealed(x, y)) {
+                    continue;
+                }
+                int walls = row[x - x0];
+                for (Direction d : ORDER) {
+                    if ((walls & d.mask) == 0) {
+                        continue;
+                    }
+                    g.setColor(wallColor(state.isHit(x, y, d), wallsInvisible));
+                    drawSide(g, x, y, d, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws each wall once as a one pixel line. A wall shared by two tiles is
+     * drawn from the tile below or to the right of it, and is shown if either
+     * tile is revealed and red if either side was hit.
+     */
+    private void paintSimple(Graphics2D g, boolean wallsInvisible, int x0, int y0, int x1, int y1) {
+        int len = x1 - x0;
+        for (int y = y0; y < y1; ++y) {
+            maze.readRow(x0, y, row, 0, len);
+            for (int x = x0; x < x1; ++x) {
+                int walls = row[x - x0];
+                boolean revealed = state.isRevealed(x, y);
+                int left = x * tileSize;
+                int top = y * tileSize;
+
+                if ((walls & Direction.NORTH.mask) != 0) {
+                    boolean shown = revealed || (y > 0 && state.isRevealed(x, y - 1));
+                    if (!wallsInvisible || shown) {
+                        boolean hit = state.isHit(x, y, Direction.NORTH)
+                                || (y > 0 && state.isHit(x, y - 1, Direction.SOUTH));
+                        g.setColor(wallColor(hit, wallsInvisible));
+                        g.fillRect(left, top, tileSize + 1, 1);
+                    }
+                }
+                if ((walls & Direction.WEST.mask) != 0) {
+                    boolean shown = revealed || (x > 0 && state.isRevealed(x - 1, y));
+                    if (!wallsInvisible || shown) {
+                        boolean hit = state.isHit(x, y, Direction.WEST)
+                                || (x > 0 && state.isHit(x - 1, y, Direction.EAST));
+                        g.setColor(wallColor(hit, wallsInvisible));
+                        g.fillRect(left, top, 1, tileSize + 1);
+                    }
+                }
+
+                /* The outer walls on the far edges have no tile beyond them. */
+                if (y == maze.getHeight() - 1 && (walls & Direction.SOUTH.mask) != 0
+                        && (!wallsInvisible || revealed)) {
+                    g.setColor(wallColor(state.isHit(x, y, Direction.SOUTH), wallsInvisible));
+                    g.fillRect(left, top + tileSize, tileSize + 1, 1);
+                }
+                if (x == maze.getWidth() - 1 && (walls & Direction.EAST.mask) != 0
+                        && (!wallsInvisible || revealed)) {
+                    g.setColor(wallColor(state.isHit(x, y, Direction.EAST), wallsInvisible));
+                    g.fillRect(left + tileSize, top, 1, tileSize + 1);
+                }
+            }
+        }
+    }
+
+    private static Color wallColor(boolean hit, boolean wallsInvisible) {
+        if (hit) {
+            return Color.RED;
+        }
+        return wallsInvisible ? Color.LIGHT_GRAY : Color.BLACK;
+    }
+}
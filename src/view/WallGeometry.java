@@ -0,0 +1,222 @@
+package view;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.util.Arrays;
+
+import maze.Direction;
+import maze.Maze;
+
+/**
+ * The walls of a maze as merged line runs. A wall between two tiles is stored
+ * by both tiles, but appears here once, and walls that continue each other on
+ * the same grid line are merged into a single run. A perfect maze has roughly
+ * half as many runs as it has walls, and each run is one draw call.
+ * <p>
+ * Runs are kept in tile units, grouped by grid line and sorted along it, so
+ * the runs within a window of tiles can be found without scanning the whole
+ * maze. The geometry is a snapshot: build a new one when the maze changes.
+ */
+public class WallGeometry {
+    private final int width;
+    private final int height;
+
+    /* Runs on horizontal line y are runs [hStart[y], hStart[y + 1]), from x hFrom to hTo. */
+    private final int[] hStart;
+    private final int[] hFrom;
+    private final int[] hTo;
+
+    /* Runs on vertical line x are runs [vStart[x], vStart[x + 1]), from y vFrom to vTo. */
+    private final int[] vStart;
+    private final int[] vFrom;
+    private final int[] vTo;
+
+    /**
+     * Builds the geometry of a maze.
+     *
+     * @param  maze the maze
+     * @throws NullPointerException if maze is null
+     */
+    public WallGeometry(Maze maze) {
+        width = maze.getWidth();
+        height = maze.getHeight();
+        byte[] above = new byte[width];
+        byte[] row = new byte[width];
+
+        RunList h = new RunList();
+        RunList v = new RunList();
+        hStart = new int[height + 2];
+        int[] open = new int[width + 1];
+        Arrays.fill(open, -1);
+
+        for (int y = 0; y <= height; ++y) {
+            if (y < height) {
+                maze.readRow(y, row, 0);
+            }
+
+            /* Horizontal line y lies between row y - 1 and row y. */
+            hStart[y] = h.size;
+            int from = -1;
+            for (int x = 0; x <= width; ++x) {
+                boolean wall = x < width && ((y < height && (row[x] & Direction.NORTH.mask) != 0)
+                        || (y > 0 && (above[x] & Direction.SOUTH.mask) != 0));
+                if (wall && from < 0) {
+                    from = x;
+                } else if (!wall && from >= 0) {
+                    h.add(y, from, x);
+                    from = -1;
+                }
+            }
+
+            /* Vertical line x lies between column x - 1 and column x. */
+            for (int x = 0; x <= width; ++x) {
+                boolean wall = y < height && ((x < width && (row[x] & Direction.WEST.mask) != 0)
+                        || (x > 0 && (row[x - 1] & Direction.EAST.mask) != 0));
+                if (wall && open[x] < 0) {
+                    open[x] = y;
+                } else if (!wall && open[x] >= 0) {
+                    v.add(x, open[x], y);
+                    open[x] = -1;
+                }
+            }
+
+            byte[] swap = above;
+            above = row;
+            row = swap;
+        }
+        hStart[height + 1] = h.size;
+        hFrom = Arrays.copyOf(h.from, h.size);
+        hTo = Arrays.copyOf(h.to, h.size);
+
+        /* Vertical runs were closed in order of y; group them by line. */
+        vStart = new int[width + 2];
+        for (int i = 0; i < v.size; ++i) {
+            ++vStart[v.line[i] + 1];
+        }
+        for (int x = 0; x <= width; ++x) {
+            vStart[x + 1] += vStart[x];
+        }
+        vFrom = new int[v.size];
+        vTo = new int[v.size];
+        int[] next = Arrays.copyOf(vStart, width + 1);
+        for (int i = 0; i < v.size; ++i) {
+            int j = next[v.line[i]]++;
+            vFrom[j] = v.from[i];
+            vTo[j] = v.to[i];
+        }
+    }
+
+    /** Returns the width of the maze. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** Returns the height of the maze. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** Returns the number of runs. */
+    public int getRunCount() {
+        return hFrom.length + vFrom.length;
+    }
+
+    /**
+     * Returns the walls as a single path of line segments.
+     *
+     * @param  tileSize the width and height of a tile in pixels
+     * @return the path
+     */
+    public Path2D toPath(int tileSize) {
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 2 * getRunCount());
+        for (int y = 0; y <= height; ++y) {
+            for (int i = hStart[y]; i < hStart[y + 1]; ++i) {
+                path.moveTo(hFrom[i] * tileSize, y * tileSize);
+                path.lineTo(hTo[i] * tileSize, y * tileSize);
+            }
+        }
+        for (int x = 0; x <= width; ++x) {
+            for (int i = vStart[x]; i < vStart[x + 1]; ++i) {
+                path.moveTo(x * tileSize, vFrom[i] * tileSize);
+                path.lineTo(x * tileSize, vTo[i] * tileSize);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Draws the runs that touch a window of tiles as lines with the current
+     * stroke, or as one pixel rectangles.
+     *
+     * @param  g the graphics context, with the maze at its origin
+     * @param  tileSize the width and height of a tile in pixels
+     * @param  thin true to fill one pixel rectangles instead of drawing lines
+     * @param  x0 the x-coordinate of the first tile of the window
+     * @param  y0 the y-coordinate of the first tile of the window
+     * @param  x1 the x-coordinate after the last tile of the window
+     * @param  y1 the y-coordinate after the last tile of the window
+     */
+    public void draw(Graphics2D g, int tileSize, boolean thin, int x0, int y0, int x1, int y1) {
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(width, x1);
+        y1 = Math.min(height, y1);
+        for (int y = y0; y <= y1; ++y) {
+            for (int i = firstRun(hStart[y], hStart[y + 1], hTo, x0); i < hStart[y + 1] && hFrom[i] <= x1; ++i) {
+                int left = hFrom[i] * tileSize;
+                int right = hTo[i] * tileSize;
+                if (thin) {
+                    g.fillRect(left, y * tileSize, right - left + 1, 1);
+                } else {
+                    g.drawLine(left, y * tileSize, right, y * tileSize);
+                }
+            }
+        }
+        for (int x = x0; x <= x1; ++x) {
+            for (int i = firstRun(vStart[x], vStart[x + 1], vTo, y0); i < vStart[x + 1] && vFrom[i] <= y1; ++i) {
+                int top = vFrom[i] * tileSize;
+                int bottom = vTo[i] * tileSize;
+                if (thin) {
+                    g.fillRect(x * tileSize, top, 1, bottom - top + 1);
+                } else {
+                    g.drawLine(x * tileSize, top, x * tileSize, bottom);
+                }
+            }
+        }
+    }
+
+    /** Returns the first run in [from, to) that ends at or after a position. */
+    private static int firstRun(int from, int to, int[] ends, int position) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] < position) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** A growable list of runs. */
+    private static final class RunList {
+        int[] line = new int[256];
+        int[] from = new int[256];
+        int[] to = new int[256];
+        int size;
+
+        void add(int l, int f, int t) {
+            if (size == line.length) {
+                line = Arrays.copyOf(line, 2 * size);
+                from = Arrays.copyOf(from, 2 * size);
+                to = Arrays.copyOf(to, 2 * size);
+            }
+            line[size] = l;
+            from[size] = f;
+            to[size] = t;
+            ++size;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package view;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import maze.Direction;
+import maze.Maze;
+
+/**
+ * Caches the grid and the walls of a maze as one image per visibility state.
+ * The images are rendered once when the cache is created, so painting the maze
+ * is a single image blit regardless of its size. When the state of a tile
+ * changes, {@link #patchTile} re-renders only the area around that tile.
+ * <p>
+ * In the visible state every wall is drawn, black or red if it was hit. In the
+ * invisible state only the walls of revealed tiles are drawn, light grey or red
+ * if they were hit. The grid is drawn in light grey in both states.
+ */
+public class WallLayerCache {
+    /* Wall lines are drawn in this order; later lines paint over earlier ones. */
+    private static final Direction[] ORDER = { Direction.NORTH, Direction.SOUTH, Direction.WEST, Direction.EAST };
+
+    private final Maze maze;
+    private final int tileSize;
+    private final BasicStroke stroke;
+    private final TileState state;
+    private final BufferedImage visible;
+    private final BufferedImage invisible;
+    private final byte[] row;
+
+    /**
+     * Creates the cache and renders both layers.
+     *
+     * @param  maze the maze
+     * @param  tileSize the width and height of a tile in pixels
+     * @param  strokeWidth the width of the lines
+     * @param  state the state of the tiles
+     * @throws IllegalArgumentException if tileSize is not positive
+     * @throws NullPointerException if maze or state is null
+     */
+    public WallLayerCache(Maze maze, int tileSize, float strokeWidth, TileState state) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        if (state == null) {
+            throw new NullPointerException();
+        }
+        this.maze = maze;
+        this.tileSize = tileSize;
+        this.stroke = new BasicStroke(strokeWidth);
+        this.state = state;
+        row = new byte[maze.getWidth()];
+
+        /* Lines on the far edges extend half a stroke beyond the last tile. */
+        int margin = margin();
+        int width = maze.getWidth() * tileSize + margin;
+        int height = maze.getHeight() * tileSize + margin;
+        visible = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        invisible = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        render(visible, false, null);
+        render(invisible, true, null);
+    }
+
+    /** Returns the maze. */
+    public Maze getMaze() {
+        return maze;
+    }
+
+    /**
+     * Returns the layer of a visibility state. The image is owned by the cache
+     * and changes when a tile is patched.
+     *
+     * @param  wallsInvisible true for the layer shown while walls are invisible
+     * @return the layer
+     */
+    public BufferedImage getLayer(boolean wallsInvisible) {
+        return wallsInvisible ? invisible : visible;
+    }
+
+    /**
+     * Draws the layer of a visibility state.
+     *
+     * @param  g the graphics context
+     * @param  wallsInvisible true to draw the layer shown while walls are invisible
+     */
+    public void paint(Graphics2D g, boolean wallsInvisible) {
+        paint(g, wallsInvisible, null);
+    }
+
+    /**
+     * Draws the part of the layer of a visibility state that lies within an
+     * area, so the cost of a repaint depends on the area and not on the size
+     * of the maze.
+     *
+     * @param  g the graphics context
+     * @param  wallsInvisible true to draw the layer shown while walls are invisible
+     * @param  area the area to draw in pixels, or null to draw the whole layer
+     */
+    public void paint(Graphics2D g, boolean wallsInvisible, Rectangle area) {
+        BufferedImage layer = getLayer(wallsInvisible);
+        if (area == null) {
+            g.drawImage(layer, 0, 0, null);
+            return;
+        }
+        Rectangle r = area.intersection(new Rectangle(layer.getWidth(), layer.getHeight()));
+        if (r.isEmpty()) {
+            return;
+        }
+        g.drawImage(layer, r.x, r.y, r.x + r.width, r.y + r.height,
+                r.x, r.y, r.x + r.width, r.y + r.height, null);
+    }
+
+    /**
+     * Returns the area covered by a tile and the lines on its edges.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @return the area in pixels
+     */
+    public Rectangle getTileBounds(int x, int y) {
+        int margin = margin();
+        return new Rectangle(x * tileSize - margin, y * tileSize - margin,
+                tileSize + 2 * margin, tileSize + 2 * margin);
+    }
+
+    /**
+     * Re-renders the area of a tile in both layers after its state changed.
+     *
+     * @param  x the x-coordinate of the tile
+     * @param  y the y-coordinate of the tile
+     * @return the area that changed, in pixels
+     */
+    public Rectangle patchTile(int x, int y) {
+        Rectangle area = getTileBounds(x, y);
+        render(visible, false, area);
+        render(invisible, true, area);
+        return area;
+    }
+
+    /** Returns the number of pixels a line extends beyond its tile. */
+    private int margin() {
+        return (int) Math.ceil(stroke.getLineWidth() / 2);
+    }
+
+    /**
+     * Renders a layer, or only the part of it within an area. The tiles that
+     * can reach into the area are drawn in the same order as for the whole
+     * layer, so a patched area matches a full render pixel for pixel.
+     */
+    private void render(BufferedImage layer, boolean wallsInvisible, Rectangle area) {
+        int x0 = 0;
+        int y0 = 0;
+        int x1 = maze.getWidth();
+        int y1 = maze.getHeight();
+        Graphics2D g = layer.createGraphics();
+        try {
+            if (area != null) {
+                g.clip(area);
+                Composite composite = g.getComposite();
+                g.setComposite(AlphaComposite.Clear);
+                g.fill(area);
+                g.setComposite(composite);
+
+                /* A tile and its neighbours cover every line within the margin. */
+                x0 = Math.max(0, Math.floorDiv(area.x, tileSize) - 1);
+                y0 = Math.max(0, Math.floorDiv(area.y, tileSize) - 1);
+                x1 = Math.min(x1, (area.x + area.width) / tileSize + 2);
+                y1 = Math.min(y1, (area.y + area.height) / tileSize + 2);
+            }
+            g.setStroke(stroke);
+
+            /* The grid, as placeholders for invisible walls. */
+            g.setColor(Color.LIGHT_GRAY);
+            for (int y = y0; y < y1; ++y) {
+                for (int x = x0; x < x1; ++x) {
+                    g.drawRect(x * tileSize, y * tileSize, tileSize, tileSize);
+                }
+            }
+
+            for (int y = y0; y < y1; ++y) {
+                maze.readRow(y, row, 0);
+                for (int x = x0; x < x1; ++x) {
+                    if (wallsInvisible && !state.isRevealed(x, y)) {
+                        continue;
+                    }
+                    for (Direction d : ORDER) {
+                        if ((row[x] & d.mask) != 0) {
+                            drawWall(g, x, y, d, wallsInvisible);
+                        }
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private void drawWall(Graphics2D g, int x, int y, Direction d, boolean wallsInvisible) {
+        if (state.isHit(x, y, d)) {
+            g.setColor(Color.RED);
+        } else if (!wallsInvisible) {
+            g.setColor(Color.BLACK);
+        } else {
+            g.setColor(Color.LIGHT_GRAY);
+        }
+
+        /* The line runs along the side of the tile that faces d. */
+        int left = x * tileSize;
+        int top = y * tileSize;
+        int right = left + tileSize;
+        int bottom = top + tileSize;
+        switch (d) {
+            case NORTH:
+                g.drawLine(left, top, right, top);
+                break;
+            case SOUTH:
+                g.drawLine(left, bottom, right, bottom);
+                break;
+            case WEST:
+                g.drawLine(left, top, left, bottom);
+                break;
+            case EAST:
+                g.drawLine(right, top, right, bottom);
+                break;
+        }
+    }
+}